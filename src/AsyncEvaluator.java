@@ -0,0 +1,153 @@
+/**
+ * An Evaluator that finds fitnesses in batches on a pool of threads, so that
+ * an Objective that blocks (e.g. on another process) does not leave the
+ * machine idle. The number of threads limits how many evaluations are in
+ * progress at once.
+ *
+ * @author Rob Impey
+ */
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+public class AsyncEvaluator implements Evaluator {
+    // Instance fields and class constants
+    // -----------------------------------
+
+    private final Objective objective;
+    private final int batchSize;
+    private final ExecutorService pool;
+    private final ThreadLocal<List<Future<?>>> pending = new ThreadLocal<List<Future<?>>>() {
+        @Override
+        protected List<Future<?>> initialValue() {
+            return new ArrayList<Future<?>>();
+        }
+    }; // Batches each thread has submitted since its last await
+    private final AtomicInteger queueDepth = new AtomicInteger(); // Batches waiting for a thread
+    private final AtomicLong evaluations = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong(); // Batches finished
+    private final AtomicLong totalLatency = new AtomicLong(); // In nanoseconds, from submission to finishing
+
+    // Constructors
+    // ------------
+    /**
+     * @param _objective The Objective to evaluate
+     * @param _concurrency The most evaluations to have in progress at once
+     * @param _batchSize The number of Phenotypes to evaluate in each task
+     */
+    public AsyncEvaluator(Objective _objective, int _concurrency, int _batchSize) {
+        objective = _objective;
+        batchSize = Math.max(1, _batchSize);
+        pool = Executors.newFixedThreadPool(Math.max(1, _concurrency), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable _r) {
+                Thread t = new Thread(_r, "evaluator");
+                t.setDaemon(true); // Don't keep the JVM alive if shutdown is forgotten
+                return t;
+            }
+        });
+    }
+
+    // Access methods
+    // --------------
+    /**
+     * @return The number of batches waiting for a thread
+     */
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    /**
+     * @return The number of Phenotypes evaluated so far
+     */
+    public long getEvaluations() {
+        return evaluations.get();
+    }
+
+    /**
+     * @return The mean time from submitting a batch to finishing it, in
+     * milliseconds
+     */
+    public double getMeanLatency() {
+        long finished = batches.get();
+        if (finished == 0) {
+            return 0.0;
+        }
+
+        return totalLatency.get() / (finished * 1000000.0);
+    }
+
+    /**
+     * @return A String to represent the state of the evaluator
+     */
+    @Override
+    public String toString() {
+        return "Queue depth: " + this.getQueueDepth() + " \n"
+                + "Evaluations: " + this.getEvaluations() + " \n"
+                + "Mean latency (ms): " + this.getMeanLatency();
+    }
+
+    // Methods for evaluation
+    // ----------------------
+    /**
+     * Splits the Phenotypes into batches and queues them for the threads
+     *
+     * @param _individuals The array holding the Phenotypes
+     * @param _from The index of the first Phenotype
+     * @param _to The index after the last Phenotype
+     */
+    @Override
+    public void submit(final Phenotype[] _individuals, int _from, int _to) {
+        List<Future<?>> mine = pending.get();
+        for (int start = _from; start < _to; start += batchSize) {
+            final int first = start;
+            final int last = Math.min(start + batchSize, _to);
+            final long submitted = System.nanoTime();
+
+            queueDepth.incrementAndGet();
+            mine.add(pool.submit(new Runnable() {
+                @Override
+                public void run() {
+                    queueDepth.decrementAndGet();
+                    for (int i = first; i < last; i++) {
+                        Phenotype p = _individuals[i];
+                        p.setFitness(objective.evaluate(p.getX(), p.getY()));
+                    }
+
+                    evaluations.addAndGet(last - first);
+                    totalLatency.addAndGet(System.nanoTime() - submitted);
+                    batches.incrementAndGet();
+                }
+            }));
+        }
+    }
+
+    /**
+     * Waits for every batch the calling thread has submitted since its last
+     * call
+     */
+    @Override
+    public void await() {
+        List<Future<?>> mine = pending.get();
+        try {
+            for (Future<?> f : mine) {
+                f.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for fitnesses", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("The objective failed", e.getCause());
+        } finally {
+            mine.clear();
+        }
+    }
+
+    /**
+     * Stops the threads
+     */
+    @Override
+    public void shutdown() {
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,180 @@
+/**
+ * Seeks the maximum of the complex function with the covariance matrix
+ * adaptation evolution strategy (CMA-ES). Each generation samples points from
+ * a Gaussian, moves its mean towards the fittest of them and adapts its
+ * covariance and step size to the steps that paid off. There are only two
+ * coordinates, so the covariance matrix is 2 by 2 and its eigendecomposition
+ * is worked out directly rather than by a general routine.
+ *
+ * @author Rob Impey
+ */
+import java.util.*;
+
+public final class CmaEs extends Optimiser {
+    // Instance fields and class constants
+    // -----------------------------------
+
+    private static final double MAX = 10.0;
+    private static final double MIN = -10.0;
+    private static final int N = 2; // The number of coordinates
+    private static final double INITIAL_SIGMA = 3.0; // About a third of the range
+    private final int lambda; // The number of points sampled each generation
+    private final int mu; // The number of them used to move the mean
+
+    // The constructors
+    // ----------------
+    /**
+     * @param _lambda The number of points to sample each generation, at least
+     * 4
+     * @param _generations The number of generations to evolve for
+     */
+    public CmaEs(int _lambda, int _generations) {
+        super(_generations);
+        lambda = Math.max(4, _lambda);
+        mu = lambda / 2;
+        this.evolve();
+    }
+
+    // Access methods
+    // --------------
+    /**
+     * @return The number of points sampled each generation
+     */
+    public int getLambda() {
+        return lambda;
+    }
+
+    /**
+     * @return A String to represent the optimiser
+     */
+    @Override
+    public String toString() {
+        return "Points per generation: " + lambda + " \n"
+                + "Points used to move the mean: " + mu + " \n"
+                + "Number of generations: " + this.getGenerations();
+    }
+
+    // Methods for evolution
+    // ---------------------
+    /**
+     * Performs evolution, sampling lambda points in every generation
+     * including the last
+     */
+    @Override
+    public void evolve() {
+        int generations = this.getGenerations();
+        Random random = new Random();
+
+        // Recombination weights, falling off with the log of the rank
+        double[] weights = new double[mu];
+        double sum = 0.0;
+        for (int i = 0; i < mu; i++) {
+            weights[i] = Math.log(mu + 0.5) - Math.log(i + 1);
+            sum += weights[i];
+        }
+        double sumOfSquares = 0.0;
+        for (int i = 0; i < mu; i++) {
+            weights[i] /= sum;
+            sumOfSquares += weights[i] * weights[i];
+        }
+        double mueff = 1.0 / sumOfSquares;
+
+        // The standard learning rates
+        double cc = (4.0 + mueff / N) / (N + 4.0 + 2.0 * mueff / N);
+        double cs = (mueff + 2.0) / (N + mueff + 5.0);
+        double c1 = 2.0 / ((N + 1.3) * (N + 1.3) + mueff);
+        double cmu = Math.min(1.0 - c1, 2.0 * (mueff - 2.0 + 1.0 / mueff) / ((N + 2.0) * (N + 2.0) + mueff));
+        double damps = 1.0 + 2.0 * Math.max(0.0, Math.sqrt((mueff - 1.0) / (N + 1.0)) - 1.0) + cs;
+        double chiN = Math.sqrt(N) * (1.0 - 1.0 / (4.0 * N) + 1.0 / (21.0 * N * N));
+
+        // The state of the search
+        double[] mean = {MIN + (MAX - MIN) * random.nextDouble(), MIN + (MAX - MIN) * random.nextDouble()};
+        double sigma = INITIAL_SIGMA;
+        double c11 = 1.0, c12 = 0.0, c22 = 1.0; // The covariance matrix
+        double[] pc = new double[N], ps = new double[N]; // The evolution paths
+
+        double[][] points = new double[2][lambda];
+        double[][] steps = new double[2][lambda]; // (point - mean) / sigma
+        double[] fitnesses = new double[lambda];
+        Integer[] ranks = new Integer[lambda];
+        long evaluations = 0;
+
+        for (int gen = 0; gen <= generations; gen++) // The loop of generations
+        {
+            // C = B D^2 B', with B a rotation by theta
+            double theta = 0.5 * Math.atan2(2.0 * c12, c11 - c22);
+            double cos = Math.cos(theta), sin = Math.sin(theta);
+            double d1 = Math.sqrt(Math.max(1e-20, c11 * cos * cos + 2.0 * c12 * sin * cos + c22 * sin * sin));
+            double d2 = Math.sqrt(Math.max(1e-20, c11 * sin * sin - 2.0 * c12 * sin * cos + c22 * cos * cos));
+
+            // Sample and evaluate the points, keeping them within bounds
+            for (int k = 0; k < lambda; k++) {
+                double z1 = d1 * random.nextGaussian();
+                double z2 = d2 * random.nextGaussian();
+                points[0][k] = Math.max(MIN, Math.min(MAX, mean[0] + sigma * (cos * z1 - sin * z2)));
+                points[1][k] = Math.max(MIN, Math.min(MAX, mean[1] + sigma * (sin * z1 + cos * z2)));
+                steps[0][k] = (points[0][k] - mean[0]) / sigma;
+                steps[1][k] = (points[1][k] - mean[1]) / sigma;
+                fitnesses[k] = Phenotype.fitnessOf(points[0][k], points[1][k]);
+                ranks[k] = k;
+            }
+            evaluations += lambda;
+
+            // Collect data on the generation
+            this.record(gen, mean(fitnesses), best(points, fitnesses), evaluations);
+
+            if (gen == generations) {
+                break;
+            }
+
+            // Rank the points, fittest first
+            final double[] f = fitnesses;
+            Arrays.sort(ranks, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer _a, Integer _b) {
+                    return Double.compare(f[_b], f[_a]);
+                }
+            });
+
+            // Move the mean by the weighted step of the best mu points
+            double yw1 = 0.0, yw2 = 0.0;
+            for (int i = 0; i < mu; i++) {
+                yw1 += weights[i] * steps[0][ranks[i]];
+                yw2 += weights[i] * steps[1][ranks[i]];
+            }
+            mean[0] += sigma * yw1;
+            mean[1] += sigma * yw2;
+
+            // The step size path uses C^-1/2 yw = B D^-1 B' yw
+            double b1 = (cos * yw1 + sin * yw2) / d1;
+            double b2 = (-sin * yw1 + cos * yw2) / d2;
+            double scale = Math.sqrt(cs * (2.0 - cs) * mueff);
+            ps[0] = (1.0 - cs) * ps[0] + scale * (cos * b1 - sin * b2);
+            ps[1] = (1.0 - cs) * ps[1] + scale * (sin * b1 + cos * b2);
+            double psNorm = Math.sqrt(ps[0] * ps[0] + ps[1] * ps[1]);
+            boolean hsig = psNorm / Math.sqrt(1.0 - Math.pow(1.0 - cs, 2.0 * (gen + 1))) / chiN
+                    < 1.4 + 2.0 / (N + 1.0);
+
+            // The covariance path stalls while the step size is growing quickly
+            scale = hsig ? Math.sqrt(cc * (2.0 - cc) * mueff) : 0.0;
+            pc[0] = (1.0 - cc) * pc[0] + scale * yw1;
+            pc[1] = (1.0 - cc) * pc[1] + scale * yw2;
+
+            // Rank one and rank mu updates of the covariance
+            double keep = 1.0 - c1 - cmu + (hsig ? 0.0 : c1 * cc * (2.0 - cc));
+            double r11 = 0.0, r12 = 0.0, r22 = 0.0;
+            for (int i = 0; i < mu; i++) {
+                int k = ranks[i];
+                r11 += weights[i] * steps[0][k] * steps[0][k];
+                r12 += weights[i] * steps[0][k] * steps[1][k];
+                r22 += weights[i] * steps[1][k] * steps[1][k];
+            }
+            c11 = keep * c11 + c1 * pc[0] * pc[0] + cmu * r11;
+            c12 = keep * c12 + c1 * pc[0] * pc[1] + cmu * r12;
+            c22 = keep * c22 + c1 * pc[1] * pc[1] + cmu * r22;
+
+            // Lengthen the steps if the path is longer than a random walk's
+            sigma *= Math.exp((cs / damps) * (psNorm / chiN - 1.0));
+        }
+    }
+}
@@ -0,0 +1,24 @@
+/**
+ * What a World does when its population has lost its diversity
+ *
+ * @author Rob Impey
+ */
+public enum CollapseAction {
+
+    /**
+     * Carry on regardless
+     */
+    NONE,
+    /**
+     * Stop evolving, as further generations are unlikely to help
+     */
+    STOP,
+    /**
+     * Raise the mutation rate until the diversity recovers
+     */
+    RAISE_MUTATION,
+    /**
+     * Replace the worse part of the population with new random individuals
+     */
+    RESEED
+}
@@ -0,0 +1,58 @@
+/**
+ * The complex function that a Phenotype uses for its fitness, as an Objective.
+ *
+ * The function is a sum of two peaks, each a product of a factor in x and a
+ * factor in y:
+ * <code>
+ *  f(x, y) = xPeak1(x) * yPeak1(y) + xPeak2(x) * yPeak2(y)
+ * </code>
+ * Working out the factors separately gives exactly the same doubles as
+ * Phenotype.fitnessOf, and lets a change to one coordinate be evaluated
+ * without working out the other coordinate's factors again.
+ *
+ * @author Rob Impey
+ */
+public final class ComplexFunction implements Objective {
+
+    /**
+     * @param _x The value of x
+     * @param _y The value of y
+     * @return The same as the fitness of a Phenotype at (x, y)
+     */
+    @Override
+    public double evaluate(double _x, double _y) {
+        return Phenotype.fitnessOf(_x, _y);
+    }
+
+    /**
+     * @param _x The value of x
+     * @return The x factor of the lower peak, near (-2, 0)
+     */
+    public static double xPeak1(double _x) {
+        return Math.exp(-0.7 * (_x + 2.0) * (_x + 2.0));
+    }
+
+    /**
+     * @param _y The value of y
+     * @return The y factor of the lower peak
+     */
+    public static double yPeak1(double _y) {
+        return Math.exp(-0.9 * _y * _y);
+    }
+
+    /**
+     * @param _x The value of x
+     * @return The x factor of the higher peak, near (5.5, 2)
+     */
+    public static double xPeak2(double _x) {
+        return 2.0 * Math.exp(-1.0 * (_x - 5.0) * (_x - 6.0));
+    }
+
+    /**
+     * @param _y The value of y
+     * @return The y factor of the higher peak
+     */
+    public static double yPeak2(double _y) {
+        return Math.exp(-1.0 * (_y - 2.0) * (_y - 2.0));
+    }
+}
@@ -0,0 +1,41 @@
+/**
+ * An Objective that takes a set time to answer. This stands in for an
+ * objective that blocks on another process, so that Evaluators can be tried
+ * out without one
+ *
+ * @author Rob Impey
+ */
+public class DelayedObjective implements Objective {
+    // Instance fields and class constants
+    // -----------------------------------
+
+    private final Objective objective;
+    private final long delay; // In milliseconds
+
+    // Constructors
+    // ------------
+    /**
+     * @param _objective The Objective that gives the answers
+     * @param _delay The delay before each answer in milliseconds
+     */
+    public DelayedObjective(Objective _objective, long _delay) {
+        objective = _objective;
+        delay = _delay;
+    }
+
+    /**
+     * @param _x The value of x
+     * @param _y The value of y
+     * @return The answer of the wrapped Objective, after the delay
+     */
+    @Override
+    public double evaluate(double _x, double _y) {
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        return objective.evaluate(_x, _y);
+    }
+}
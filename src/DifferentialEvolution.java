@@ -0,0 +1,122 @@
+/**
+ * Seeks the maximum of the complex function by differential evolution, using
+ * the rand/1/bin scheme. For each member of the population a trial point is
+ * made by adding a scaled difference of two random members to a third and
+ * crossing the result with the member; the trial replaces the member if it is
+ * at least as fit. Members are replaced in place, so later trials in a
+ * generation can already use the improved members.
+ *
+ * @author Rob Impey
+ */
+import java.util.*;
+
+public final class DifferentialEvolution extends Optimiser {
+    // Instance fields and class constants
+    // -----------------------------------
+
+    private static final double MAX = 10.0;
+    private static final double MIN = -10.0;
+    private final int populationSize;
+    private final double differentialWeight; // F
+    private final double crossoverRate; // CR
+
+    // The constructors
+    // ----------------
+    /**
+     * @param _populationSize The size of the population, at least 4
+     * @param _generations The number of generations to evolve for
+     * @param _differentialWeight How much of the difference to add, often 0.5
+     * @param _crossoverRate The chance of each coordinate coming from the
+     * mutant, often 0.9
+     */
+    public DifferentialEvolution(int _populationSize,
+            int _generations,
+            double _differentialWeight,
+            double _crossoverRate) {
+        super(_generations);
+        populationSize = Math.max(4, _populationSize);
+        differentialWeight = _differentialWeight;
+        crossoverRate = _crossoverRate;
+        this.evolve();
+    }
+
+    // Access methods
+    // --------------
+    /**
+     * @return The size of the population
+     */
+    public int getPopulationSize() {
+        return populationSize;
+    }
+
+    /**
+     * @return A String to represent the optimiser
+     */
+    @Override
+    public String toString() {
+        return "Population size: " + populationSize + " \n"
+                + "Number of generations: " + this.getGenerations() + " \n"
+                + "Differential weight: " + differentialWeight + " \n"
+                + "Crossover rate: " + crossoverRate;
+    }
+
+    // Methods for evolution
+    // ---------------------
+    /**
+     * Performs evolution
+     */
+    @Override
+    public void evolve() {
+        int generations = this.getGenerations();
+        Random random = new Random();
+        double[][] points = new double[2][populationSize]; // x and y of each member
+        double[] fitnesses = new double[populationSize];
+        double[] trial = new double[2];
+
+        for (int i = 0; i < populationSize; i++) { // Set up the initial population
+            points[0][i] = MIN + (MAX - MIN) * random.nextDouble();
+            points[1][i] = MIN + (MAX - MIN) * random.nextDouble();
+            fitnesses[i] = Phenotype.fitnessOf(points[0][i], points[1][i]);
+        }
+        long evaluations = populationSize;
+
+        for (int gen = 0; gen < generations; gen++) // The loop of generations
+        {
+            this.record(gen, mean(fitnesses), best(points, fitnesses), evaluations);
+
+            for (int i = 0; i < populationSize; i++) {
+                // Three different members, none of them i
+                int r1, r2, r3;
+                do {
+                    r1 = random.nextInt(populationSize);
+                } while (r1 == i);
+                do {
+                    r2 = random.nextInt(populationSize);
+                } while (r2 == i || r2 == r1);
+                do {
+                    r3 = random.nextInt(populationSize);
+                } while (r3 == i || r3 == r1 || r3 == r2);
+
+                // Binomial cross over, with at least one coordinate from the mutant
+                int forced = random.nextInt(2);
+                for (int d = 0; d < 2; d++) {
+                    if (d == forced || random.nextDouble() < crossoverRate) {
+                        double v = points[d][r1] + differentialWeight * (points[d][r2] - points[d][r3]);
+                        trial[d] = Math.max(MIN, Math.min(MAX, v));
+                    } else {
+                        trial[d] = points[d][i];
+                    }
+                }
+
+                double f = Phenotype.fitnessOf(trial[0], trial[1]);
+                if (f >= fitnesses[i]) {
+                    points[0][i] = trial[0];
+                    points[1][i] = trial[1];
+                    fitnesses[i] = f;
+                }
+            }
+            evaluations += populationSize;
+        }
+        this.record(generations, mean(fitnesses), best(points, fitnesses), evaluations);
+    }
+}
@@ -0,0 +1,146 @@
+/**
+ * Measures of how varied a Population is, to tell when it has converged on a
+ * single peak
+ *
+ * @author Rob Impey
+ */
+import java.util.*;
+
+public class Diversity {
+    // Instance fields and class constants
+    // -----------------------------------
+
+    private static final int GENOME_BITS = 32; // The bits in a packed genome
+    private final double meanHammingDistance;
+    private final int uniqueGenomes;
+    private final double xSpread, ySpread; // Standard deviations of the coordinates
+
+    // Constructors
+    // ------------
+    /**
+     * Measures the diversity of a population
+     *
+     * @param _population The population
+     */
+    public Diversity(Population _population) {
+        int n = _population.getSize();
+        int[] genomes = new int[n];
+        double sumX = 0.0, sumXX = 0.0, sumY = 0.0, sumYY = 0.0;
+
+        for (int i = 0; i < n; i++) {
+            Phenotype p = _population.getPhenotype(i);
+            genomes[i] = p.getGenotype().pack();
+            double x = p.getX();
+            double y = p.getY();
+            sumX += x;
+            sumXX += x * x;
+            sumY += y;
+            sumYY += y * y;
+        }
+
+        meanHammingDistance = meanHammingDistance(genomes);
+        uniqueGenomes = countUnique(genomes);
+        xSpread = n > 0 ? Math.sqrt(Math.max(0.0, sumXX / n - (sumX / n) * (sumX / n))) : 0.0;
+        ySpread = n > 0 ? Math.sqrt(Math.max(0.0, sumYY / n - (sumY / n) * (sumY / n))) : 0.0;
+    }
+
+    // Access methods
+    // --------------
+    /**
+     * @return The mean number of bits by which two individuals differ, from 0
+     * (all the same) to 32
+     */
+    public double getMeanHammingDistance() {
+        return meanHammingDistance;
+    }
+
+    /**
+     * @return The number of different genomes
+     */
+    public int getUniqueGenomes() {
+        return uniqueGenomes;
+    }
+
+    /**
+     * @return The standard deviation of x
+     */
+    public double getXSpread() {
+        return xSpread;
+    }
+
+    /**
+     * @return The standard deviation of y
+     */
+    public double getYSpread() {
+        return ySpread;
+    }
+
+    /**
+     * @return A String to represent the diversity
+     */
+    @Override
+    public String toString() {
+        return "Mean Hamming distance: " + meanHammingDistance + " \n"
+                + "Unique genomes: " + uniqueGenomes + " \n"
+                + "Spread of x: " + xSpread + " \n"
+                + "Spread of y: " + ySpread;
+    }
+
+    // Methods for measuring
+    // ---------------------
+    /**
+     * The mean pairwise Hamming distance without comparing every pair. If c of
+     * the n genomes have a bit set, c * (n - c) pairs differ in that bit. The
+     * genomes are sliced into one bit set per bit position, so each count is
+     * a run of Long.bitCount over n / 64 words.
+     *
+     * @param _genomes The packed genomes
+     * @return The mean Hamming distance between pairs of genomes
+     */
+    static double meanHammingDistance(int[] _genomes) {
+        int n = _genomes.length;
+        if (n < 2) {
+            return 0.0;
+        }
+
+        int words = (n + 63) >>> 6;
+        long[][] columns = new long[GENOME_BITS][words];
+
+        for (int i = 0; i < n; i++) {
+            long mask = 1L << (i & 63);
+            int word = i >>> 6;
+            for (int bits = _genomes[i]; bits != 0; bits &= bits - 1) {
+                columns[Integer.numberOfTrailingZeros(bits)][word] |= mask;
+            }
+        }
+
+        double differences = 0.0;
+        for (int b = 0; b < GENOME_BITS; b++) {
+            long count = 0;
+            for (int w = 0; w < words; w++) {
+                count += Long.bitCount(columns[b][w]);
+            }
+            differences += count * (n - count);
+        }
+
+        return differences / (n * (n - 1.0) / 2.0);
+    }
+
+    /**
+     * @param _genomes The packed genomes, which are left alone
+     * @return The number of different genomes
+     */
+    static int countUnique(int[] _genomes) {
+        int[] sorted = _genomes.clone();
+        Arrays.sort(sorted);
+
+        int unique = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                unique++;
+            }
+        }
+
+        return unique;
+    }
+}
@@ -0,0 +1,381 @@
+/**
+ * An Evaluator that shares the evaluation out between worker processes on the
+ * same machine, so that a heavy or leaky Objective runs outside this JVM. Each
+ * worker is an EvaluationWorker talking over its standard input and output.
+ *
+ * Batches wait in one queue, and each worker takes the next batch whenever it
+ * has room, so a fast worker takes more of the work than a slow one. Each
+ * worker can have several batches in flight. If a worker dies, its batches go
+ * back to the front of the queue for the others and the worker is restarted.
+ * A worker that sends a reply that does not match its request, or that sends
+ * no reply in time (e.g. because it has hung), is killed and counts as dead.
+ *
+ * @author Rob Impey
+ */
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+public class EvaluationFarm implements Evaluator {
+    // Instance fields and class constants
+    // -----------------------------------
+
+    private final String objectiveClassName;
+    private final int batchSize;
+    private final int pipelineDepth; // Batches in flight per worker
+    private final int maxRestarts; // Per worker
+    private final long replyTimeout; // In milliseconds
+    private static final long DEFAULT_REPLY_TIMEOUT = 60000;
+    private final ScheduledExecutorService watchdog; // Kills workers that do not reply in time
+    private final BlockingDeque<Batch> queue = new LinkedBlockingDeque<Batch>();
+    private final Thread[] links;
+    private final Link[] workers; // What each link thread runs
+    private final Object lock = new Object(); // Guards each Caller's outstanding and failure
+    private final ThreadLocal<Caller> callers = new ThreadLocal<Caller>() {
+        @Override
+        protected Caller initialValue() {
+            return new Caller();
+        }
+    };
+    private Exception failure; // Set if the farm has given up
+    private final AtomicInteger nextBatch = new AtomicInteger();
+    private int restarts;
+    private volatile boolean running = true;
+
+    // Constructors
+    // ------------
+    /**
+     * The replies to the batches in flight must fit in a pipe's buffer, so
+     * batchSize * pipelineDepth should be kept below a few thousand.
+     *
+     * @param _objectiveClassName The class of the Objective, which needs a
+     * constructor with no arguments
+     * @param _workers The number of worker processes
+     * @param _batchSize The number of Phenotypes in each batch
+     * @param _pipelineDepth The most batches each worker has in flight
+     * @param _maxRestarts The most times each worker may be restarted
+     */
+    public EvaluationFarm(String _objectiveClassName,
+            int _workers,
+            int _batchSize,
+            int _pipelineDepth,
+            int _maxRestarts) {
+        this(_objectiveClassName, _workers, _batchSize, _pipelineDepth, _maxRestarts, DEFAULT_REPLY_TIMEOUT);
+    }
+
+    /**
+     * @param _objectiveClassName The class of the Objective, which needs a
+     * constructor with no arguments
+     * @param _workers The number of worker processes
+     * @param _batchSize The number of Phenotypes in each batch
+     * @param _pipelineDepth The most batches each worker has in flight
+     * @param _maxRestarts The most times each worker may be restarted
+     * @param _replyTimeout The longest to wait for a reply in milliseconds,
+     * after which the worker is killed and restarted
+     */
+    public EvaluationFarm(String _objectiveClassName,
+            int _workers,
+            int _batchSize,
+            int _pipelineDepth,
+            int _maxRestarts,
+            long _replyTimeout) {
+        objectiveClassName = _objectiveClassName;
+        batchSize = Math.max(1, _batchSize);
+        pipelineDepth = Math.max(1, _pipelineDepth);
+        maxRestarts = _maxRestarts;
+        replyTimeout = Math.max(1, _replyTimeout);
+        watchdog = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable _r) {
+                Thread t = new Thread(_r, "farm-watchdog");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        links = new Thread[Math.max(1, _workers)];
+        workers = new Link[links.length];
+
+        for (int i = 0; i < links.length; i++) {
+            workers[i] = new Link();
+            links[i] = new Thread(workers[i], "farm-link-" + i);
+            links[i].setDaemon(true);
+            links[i].start();
+        }
+    }
+
+    // Access methods
+    // --------------
+    /**
+     * @return The number of batches waiting for a worker
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * @return The number of times workers have been restarted
+     */
+    public int getRestarts() {
+        synchronized (lock) {
+            return restarts;
+        }
+    }
+
+    // Methods for evaluation
+    // ----------------------
+    /**
+     * Packs the genomes into batches and queues them for the workers
+     *
+     * @param _individuals The array holding the Phenotypes
+     * @param _from The index of the first Phenotype
+     * @param _to The index after the last Phenotype
+     */
+    @Override
+    public void submit(Phenotype[] _individuals, int _from, int _to) {
+        Caller caller = callers.get();
+        for (int start = _from; start < _to; start += batchSize) {
+            Batch b = new Batch(nextBatch.getAndIncrement(), caller, _individuals, start, Math.min(start + batchSize, _to));
+            synchronized (lock) {
+                caller.outstanding++;
+            }
+            queue.addLast(b);
+        }
+    }
+
+    /**
+     * Waits for every batch the calling thread has submitted so far
+     */
+    @Override
+    public void await() {
+        Caller caller = callers.get();
+        synchronized (lock) {
+            while (caller.outstanding > 0 && failure == null) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for fitnesses", e);
+                }
+            }
+
+            if (failure != null) {
+                throw new IllegalStateException("The evaluation farm has failed", failure);
+            }
+        }
+    }
+
+    /**
+     * Stops the workers. Their processes are killed here rather than left to
+     * the link threads, as a link may be blocked reading from a hung worker.
+     */
+    @Override
+    public void shutdown() {
+        running = false;
+        for (int i = 0; i < links.length; i++) {
+            links[i].interrupt();
+            workers[i].kill();
+        }
+        watchdog.shutdownNow();
+    }
+
+    /**
+     * Records a finished batch
+     *
+     * @param _b The batch
+     */
+    private void finished(Batch _b) {
+        synchronized (lock) {
+            _b.caller.outstanding--;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Gives up on the farm, so that await does not wait forever
+     *
+     * @param _e The cause
+     */
+    private void fail(Exception _e) {
+        synchronized (lock) {
+            if (failure == null) {
+                failure = _e;
+            }
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * A thread that submits batches, e.g. a World's evolving thread
+     */
+    private static class Caller {
+
+        private int outstanding; // Batches submitted but not finished
+    }
+
+    /**
+     * A batch of Phenotypes with their genomes packed ready to send
+     */
+    private static class Batch {
+
+        private final int number;
+        private final Caller caller;
+        private final Phenotype[] individuals;
+        private final int from;
+        private final int[] genomes;
+
+        Batch(int _number, Caller _caller, Phenotype[] _individuals, int _from, int _to) {
+            number = _number;
+            caller = _caller;
+            individuals = _individuals;
+            from = _from;
+            genomes = new int[_to - _from];
+            for (int i = 0; i < genomes.length; i++) {
+                genomes[i] = _individuals[_from + i].getGenotype().pack();
+            }
+        }
+
+        void setFitnesses(double[] _fitnesses) {
+            for (int i = 0; i < _fitnesses.length; i++) {
+                individuals[from + i].setFitness(_fitnesses[i]);
+            }
+        }
+    }
+
+    /**
+     * Looks after one worker process: starts it, sends it batches, reads its
+     * replies and restarts it if it dies
+     */
+    private class Link implements Runnable {
+
+        private final Deque<Batch> inFlight = new ArrayDeque<Batch>();
+        private volatile Process process; // Read by shutdown on another thread
+        private DataOutputStream out;
+        private DataInputStream in;
+        private int timesRestarted;
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    try {
+                        if (process == null) {
+                            this.start();
+                        }
+                        this.exchange();
+                    } catch (IOException e) {
+                        if (!running) {
+                            break;
+                        }
+                        this.requeue();
+                        this.stop();
+                        if (timesRestarted++ >= maxRestarts) {
+                            fail(e);
+                            break;
+                        }
+                        synchronized (lock) {
+                            restarts++;
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                // Shut down
+            } catch (RuntimeException e) {
+                fail(e); // So that await does not wait forever
+            } finally {
+                this.requeue();
+                this.stop();
+            }
+        }
+
+        /**
+         * Fills the pipeline, then reads one reply
+         */
+        private void exchange() throws IOException, InterruptedException {
+            while (inFlight.size() < pipelineDepth) {
+                // Wait for work only when there is nothing to read
+                Batch b = inFlight.isEmpty()
+                        ? queue.pollFirst(100, TimeUnit.MILLISECONDS)
+                        : queue.pollFirst();
+                if (b == null) {
+                    break;
+                }
+                inFlight.addLast(b);
+                EvaluationWorker.writeRequest(out, b.number, b.genomes);
+            }
+            out.flush();
+
+            if (!inFlight.isEmpty()) {
+                Batch b = inFlight.peekFirst();
+                b.setFitnesses(this.readReply(b));
+                inFlight.removeFirst();
+                finished(b);
+            }
+        }
+
+        /**
+         * Reads the reply to a batch, killing the worker if it does not come
+         * in time
+         */
+        private double[] readReply(Batch _b) throws IOException {
+            final Process watched = process;
+            final AtomicBoolean killed = new AtomicBoolean();
+            ScheduledFuture<?> alarm = watchdog.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    killed.set(true);
+                    watched.destroy(); // Closes the pipe, so the read fails
+                }
+            }, replyTimeout, TimeUnit.MILLISECONDS);
+
+            try {
+                return EvaluationWorker.readReply(in, _b.number, _b.genomes.length);
+            } catch (IOException e) {
+                if (killed.get()) {
+                    throw new IOException("No reply to batch " + _b.number + " within " + replyTimeout + " ms", e);
+                }
+                throw e;
+            } finally {
+                alarm.cancel(false);
+            }
+        }
+
+        private void start() throws IOException {
+            String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+            process = new ProcessBuilder(java,
+                    "-cp", System.getProperty("java.class.path"),
+                    "EvaluationWorker",
+                    objectiveClassName)
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start();
+            out = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+            in = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+        }
+
+        private void stop() {
+            if (process != null) {
+                process.destroy();
+                process = null;
+            }
+        }
+
+        /**
+         * Kills the worker from another thread, so that a blocked read fails
+         */
+        private void kill() {
+            Process p = process;
+            if (p != null) {
+                p.destroy();
+            }
+        }
+
+        /**
+         * Puts the batches in flight back at the front of the queue, in order
+         */
+        private void requeue() {
+            while (!inFlight.isEmpty()) {
+                queue.addFirst(inFlight.removeLast());
+            }
+        }
+    }
+}
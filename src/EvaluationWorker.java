@@ -0,0 +1,127 @@
+/**
+ * A worker process for an EvaluationFarm. It reads batches of packed genomes
+ * on standard input and writes their fitnesses on standard output, until
+ * standard input is closed.
+ *
+ * Every message starts with its length in bytes (not counting the length
+ * itself), then the batch number and the number of individuals. A request
+ * then has an int per genome (see Genotype.pack) and a reply a double per
+ * fitness.
+ *
+ * @author Rob Impey
+ */
+import java.io.*;
+
+public class EvaluationWorker {
+
+    /**
+     * @param args The class name of the Objective, which needs a constructor
+     * with no arguments
+     */
+    public static void main(String[] args) throws Exception {
+        Objective objective = (Objective) Class.forName(args[0]).getConstructor().newInstance();
+        DataInputStream in = new DataInputStream(new BufferedInputStream(System.in));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(System.out));
+
+        while (true) {
+            int[] genomes;
+            int batch;
+            try {
+                in.readInt(); // The length, which is implied by the count
+                batch = in.readInt();
+                genomes = new int[in.readInt()];
+            } catch (EOFException e) {
+                break; // The farm has finished with us
+            }
+
+            for (int i = 0; i < genomes.length; i++) {
+                genomes[i] = in.readInt();
+            }
+
+            writeReply(out, batch, evaluate(objective, genomes));
+            if (in.available() == 0) {
+                out.flush(); // Only flush when there are no more requests waiting
+            }
+        }
+
+        out.flush();
+    }
+
+    /**
+     * @param _objective The Objective
+     * @param _genomes The packed genomes
+     * @return The fitness of each genome
+     */
+    static double[] evaluate(Objective _objective, int[] _genomes) {
+        double[] fitnesses = new double[_genomes.length];
+        for (int i = 0; i < _genomes.length; i++) {
+            fitnesses[i] = _objective.evaluate(
+                    Phenotype.decode(_genomes[i] >>> 16),
+                    Phenotype.decode(_genomes[i] & 0xFFFF));
+        }
+
+        return fitnesses;
+    }
+
+    /**
+     * Writes a request for the fitnesses of some genomes
+     *
+     * @param _out The stream to the worker
+     * @param _batch The batch number
+     * @param _genomes The packed genomes
+     */
+    static void writeRequest(DataOutputStream _out, int _batch, int[] _genomes) throws IOException {
+        _out.writeInt(8 + 4 * _genomes.length);
+        _out.writeInt(_batch);
+        _out.writeInt(_genomes.length);
+        for (int i = 0; i < _genomes.length; i++) {
+            _out.writeInt(_genomes[i]);
+        }
+    }
+
+    /**
+     * Writes the fitnesses of a batch
+     *
+     * @param _out The stream to the farm
+     * @param _batch The batch number
+     * @param _fitnesses The fitnesses
+     */
+    static void writeReply(DataOutputStream _out, int _batch, double[] _fitnesses) throws IOException {
+        _out.writeInt(8 + 8 * _fitnesses.length);
+        _out.writeInt(_batch);
+        _out.writeInt(_fitnesses.length);
+        for (int i = 0; i < _fitnesses.length; i++) {
+            _out.writeDouble(_fitnesses[i]);
+        }
+    }
+
+    /**
+     * Reads the fitnesses of a batch. A reply that does not match the request
+     * counts as a broken pipe, so the farm restarts the worker.
+     *
+     * @param _in The stream from the worker
+     * @param _batch The batch number that is expected
+     * @param _count The number of fitnesses that is expected
+     * @return The fitnesses
+     */
+    static double[] readReply(DataInputStream _in, int _batch, int _count) throws IOException {
+        int length = _in.readInt();
+        int batch = _in.readInt();
+        if (batch != _batch) {
+            throw new IOException("Expected batch " + _batch + " but got " + batch);
+        }
+
+        int count = _in.readInt();
+        if (count != _count || length != 8 + 8 * _count) {
+            throw new IOException("Expected " + _count + " fitnesses in batch " + _batch
+                    + " but got " + count + " in " + length + " bytes");
+        }
+
+        double[] fitnesses = new double[count];
+        for (int i = 0; i < fitnesses.length; i++) {
+            fitnesses[i] = _in.readDouble();
+        }
+
+        return fitnesses;
+    }
+}
@@ -0,0 +1,35 @@
+/**
+ * Finds the fitnesses of Phenotypes, possibly in the background. Whatever
+ * the Evaluator finds is given to each Phenotype with setFitness.
+ *
+ * An Evaluator may be shared between threads, e.g. by several Worlds
+ * evolving at once. Each thread's submissions are kept apart, so await only
+ * waits for the Phenotypes submitted by the thread that calls it.
+ *
+ * @author Rob Impey
+ */
+public interface Evaluator {
+
+    /**
+     * Asks for the fitnesses of some Phenotypes. This may return before they
+     * have been found, so the Phenotypes must not be changed until await has
+     * returned.
+     *
+     * @param _individuals The array holding the Phenotypes
+     * @param _from The index of the first Phenotype
+     * @param _to The index after the last Phenotype
+     */
+    void submit(Phenotype[] _individuals, int _from, int _to);
+
+    /**
+     * Waits until every Phenotype submitted so far by the calling thread has
+     * its fitness
+     */
+    void await();
+
+    /**
+     * Releases any threads or processes, after which the Evaluator must not be
+     * used
+     */
+    void shutdown();
+}
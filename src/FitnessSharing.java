@@ -0,0 +1,138 @@
+/**
+ * Fitness sharing, so that a population can hold on to more than one peak.
+ * Each individual's fitness is divided by how crowded its neighbourhood is,
+ * so individuals on a crowded peak count for less than those on a lonely
+ * one. Sharing alone loses the lower peak to cross overs between the two
+ * peaks, whose children land on neither, so mates are also chosen from within
+ * the same radius (see neighbours).
+ *
+ * The neighbours are found with a SpatialHash rather than by comparing every
+ * pair, so sharing takes time in proportion to the population size times the
+ * number of neighbours.
+ *
+ * @author Rob Impey
+ */
+import java.util.*;
+
+public class FitnessSharing {
+    // Instance fields and class constants
+    // -----------------------------------
+
+    private final double radius; // How close individuals must be to share
+    private final double alpha; // The shape of the sharing function
+
+    // Constructors
+    // ------------
+    /**
+     * @param _radius How close individuals must be to share fitness
+     * @param _alpha The shape of the sharing function, 1 for a linear fall off
+     */
+    public FitnessSharing(double _radius, double _alpha) {
+        radius = _radius;
+        alpha = _alpha;
+    }
+
+    // Access methods
+    // --------------
+    /**
+     * @return How close individuals must be to share fitness
+     */
+    public double getRadius() {
+        return radius;
+    }
+
+    // Methods for sharing
+    // -------------------
+    /**
+     * @param _population The population
+     * @return The shared fitness of each individual
+     */
+    public double[] share(Population _population) {
+        int n = _population.getSize();
+        double[] x = new double[n];
+        double[] y = new double[n];
+        double[] shared = new double[n];
+
+        for (int i = 0; i < n; i++) {
+            Phenotype p = _population.getPhenotype(i);
+            x[i] = p.getX();
+            y[i] = p.getY();
+            shared[i] = p.getFitness();
+        }
+
+        SpatialHash hash = new SpatialHash(x, y, radius);
+        int last = hash.getSide() - 1;
+
+        for (int i = 0; i < n; i++) {
+            int cx = hash.cellX(x[i]);
+            int cy = hash.cellY(y[i]);
+            double crowding = 0.0; // Includes the individual itself
+
+            for (int ny = Math.max(0, cy - 1); ny <= Math.min(last, cy + 1); ny++) {
+                for (int nx = Math.max(0, cx - 1); nx <= Math.min(last, cx + 1); nx++) {
+                    for (int k = hash.getStart(nx, ny); k < hash.getEnd(nx, ny); k++) {
+                        int j = hash.getIndex(k);
+                        double dx = x[i] - x[j];
+                        double dy = y[i] - y[j];
+                        double d = Math.sqrt(dx * dx + dy * dy);
+                        if (d < radius) {
+                            crowding += alpha == 1.0 ? 1.0 - d / radius : 1.0 - Math.pow(d / radius, alpha);
+                        }
+                    }
+                }
+            }
+
+            shared[i] /= crowding;
+        }
+
+        return shared;
+    }
+
+    /**
+     * Lists the individuals near each individual, so that a mate can be
+     * chosen from the same niche
+     *
+     * @param _population The population
+     * @return For each individual, the indices of the individuals within the
+     * radius of it, itself included
+     */
+    public int[][] neighbours(Population _population) {
+        int n = _population.getSize();
+        double[] x = new double[n];
+        double[] y = new double[n];
+
+        for (int i = 0; i < n; i++) {
+            Phenotype p = _population.getPhenotype(i);
+            x[i] = p.getX();
+            y[i] = p.getY();
+        }
+
+        SpatialHash hash = new SpatialHash(x, y, radius);
+        int last = hash.getSide() - 1;
+        int[][] neighbours = new int[n][];
+        int[] found = new int[n];
+
+        for (int i = 0; i < n; i++) {
+            int cx = hash.cellX(x[i]);
+            int cy = hash.cellY(y[i]);
+            int count = 0;
+
+            for (int ny = Math.max(0, cy - 1); ny <= Math.min(last, cy + 1); ny++) {
+                for (int nx = Math.max(0, cx - 1); nx <= Math.min(last, cx + 1); nx++) {
+                    for (int k = hash.getStart(nx, ny); k < hash.getEnd(nx, ny); k++) {
+                        int j = hash.getIndex(k);
+                        double dx = x[i] - x[j];
+                        double dy = y[i] - y[j];
+                        if (dx * dx + dy * dy < radius * radius) {
+                            found[count++] = j;
+                        }
+                    }
+                }
+            }
+
+            neighbours[i] = Arrays.copyOf(found, count);
+        }
+
+        return neighbours;
+    }
+}
@@ -13,6 +13,10 @@ public class GatherData {
         final int gen = 60;
         final double sR = 0.5;
         final double mR = 0.1;
+        final int lSE = 2; // Local search elites
+        final int lSS = 32; // Local search steps
+        final double[] radii = {0.0, 1.0, 2.0, 3.0}; // Fitness sharing radii, 0 for none
+        final int runs = 10; // Seeded runs for each radius
 
         final double[] milestones = {2.0, 2.1, 2.2, 2.3, 2.4, 2.5};
 
@@ -21,6 +25,11 @@ public class GatherData {
         double bMF; // Best generational mean fitness
         Phenotype bI; // Best individual
 
+        // The true maximum, to measure how far short each World falls
+        GridSearch truth = new GridSearch(new ComplexFunction(), 1,
+                Runtime.getRuntime().availableProcessors());
+        double tM = truth.getBestFitness(); // True maximum
+
         // Experiments with varying the number of parents
 
         World[] wPPS = new World[6];
@@ -73,8 +82,53 @@ public class GatherData {
         wMR[7] = new World(pPS, cPS, gen, sR, 0.8);
         wMR[8] = new World(pPS, cPS, gen, sR, 0.9);
 
+        // Experiments comparing the binary and real encodings
+        World wBin = new World(pPS, cPS, gen, sR, mR);
+        RealWorld wReal = new RealWorld(pPS, cPS, gen, sR, mR);
+
+        // Experiments comparing the optimisers
+        String[] oNames = {"GA", "MA", "RGA", "DE", "CMA"};
+        World wMem = new World(pPS, cPS, gen, sR, mR, null); // The GA with local search
+        wMem.setLocalSearch(lSE, lSS);
+        wMem.evolve();
+        Optimiser[] wOpt = new Optimiser[5];
+        wOpt[0] = wBin;
+        wOpt[1] = wMem;
+        wOpt[2] = wReal;
+        wOpt[3] = new DifferentialEvolution(pPS, gen, 0.5, 0.9);
+        wOpt[4] = new CmaEs(12, gen);
+
+        // Experiments with fitness sharing. A run keeps the lower peak if its
+        // final population has an individual within 1.5 of (-2, 0).
+        int[] kept = new int[radii.length];
+        double[] meanOfMeans = new double[radii.length];
+        for (int i = 0; i < radii.length; i++) {
+            for (int seed = 0; seed < runs; seed++) {
+                World wShare = new World(pPS, cPS, gen, sR, mR, null);
+                wShare.setSeed(seed);
+                wShare.setFitnessSharing(radii[i]);
+                wShare.evolve();
+
+                Phenotype[] last = wShare.getPopulation();
+                for (int j = 0; j < last.length; j++) {
+                    double dx = last[j].getX() + 2.0;
+                    double dy = last[j].getY();
+                    if (dx * dx + dy * dy <= 1.5 * 1.5) {
+                        kept[i]++;
+                        break;
+                    }
+                }
+                meanOfMeans[i] += wShare.getMeanFitnessOfGeneration(gen) / runs;
+            }
+        }
+
         // Display the results
 
+        System.out.println();
+        System.out.println("True maximum found by searching every point");
+        System.out.println();
+        System.out.println(truth);
+
         System.out.println();
         System.out.println("Experiments with varying the size of the population of parents");
         System.out.println();
@@ -85,7 +139,7 @@ public class GatherData {
         System.out.println("Mutation rate: " + mR);
         System.out.println();
 
-        System.out.println("PPS\t|\tGWBMF\tBMF\tGWBI\tBIX\tBIY\tBIF");
+        System.out.println("PPS\t|\tGWBMF\tBMF\tGWBI\tBIX\tBIY\tBIF\tGAP");
         System.out.println();
 
         for (int i = 0; i < wPPS.length; i++) {
@@ -101,7 +155,8 @@ public class GatherData {
                     + gWBI + "\t"
                     + shorten(bI.getX()) + "\t"
                     + shorten(bI.getY()) + "\t"
-                    + shorten(bI.getFitness()));
+                    + shorten(bI.getFitness()) + "\t"
+                    + shorten(tM - bI.getFitness()));
         }
 
         System.out.println();
@@ -114,7 +169,7 @@ public class GatherData {
         System.out.println("Mutation rate: " + mR);
         System.out.println();
 
-        System.out.println("CPS\t|\tGWBMF\tBMF\tGWBI\tBIX\tBIY\tBIF");
+        System.out.println("CPS\t|\tGWBMF\tBMF\tGWBI\tBIX\tBIY\tBIF\tGAP");
         System.out.println();
 
         for (int i = 0; i < wCPS.length; i++) {
@@ -130,7 +185,8 @@ public class GatherData {
                     + gWBI + "\t"
                     + shorten(bI.getX()) + "\t"
                     + shorten(bI.getY()) + "\t"
-                    + shorten(bI.getFitness()));
+                    + shorten(bI.getFitness()) + "\t"
+                    + shorten(tM - bI.getFitness()));
         }
 
         System.out.println();
@@ -143,7 +199,7 @@ public class GatherData {
         System.out.println("Mutation rate: " + mR);
         System.out.println();
 
-        System.out.println("G\t|\tGWBMF\tBMF\tGWBI\tBIX\tBIY\tBIF");
+        System.out.println("G\t|\tGWBMF\tBMF\tGWBI\tBIX\tBIY\tBIF\tGAP");
         System.out.println();
 
         for (int i = 0; i < wGen.length; i++) {
@@ -159,7 +215,8 @@ public class GatherData {
                     + gWBI + "\t"
                     + shorten(bI.getX()) + "\t"
                     + shorten(bI.getY()) + "\t"
-                    + shorten(bI.getFitness()));
+                    + shorten(bI.getFitness()) + "\t"
+                    + shorten(tM - bI.getFitness()));
         }
 
         System.out.println();
@@ -172,7 +229,7 @@ public class GatherData {
         System.out.println("Mutation rate: " + mR);
         System.out.println();
 
-        System.out.println("SR\t|\tGWBMF\tBMF\tGWBI\tBIX\tBIY\tBIF");
+        System.out.println("SR\t|\tGWBMF\tBMF\tGWBI\tBIX\tBIY\tBIF\tGAP");
         System.out.println();
 
         for (int i = 0; i < wSR.length; i++) {
@@ -188,7 +245,8 @@ public class GatherData {
                     + gWBI + "\t"
                     + shorten(bI.getX()) + "\t"
                     + shorten(bI.getY()) + "\t"
-                    + shorten(bI.getFitness()));
+                    + shorten(bI.getFitness()) + "\t"
+                    + shorten(tM - bI.getFitness()));
         }
 
         System.out.println();
@@ -201,7 +259,7 @@ public class GatherData {
         System.out.println("Selection rate: " + sR);
         System.out.println();
 
-        System.out.println("MR\t|\tGWBMF\tBMF\tGWBI\tBIX\tBIY\tBIF");
+        System.out.println("MR\t|\tGWBMF\tBMF\tGWBI\tBIX\tBIY\tBIF\tGAP");
         System.out.println();
 
         for (int i = 0; i < wMR.length; i++) {
@@ -217,7 +275,99 @@ public class GatherData {
                     + gWBI + "\t"
                     + shorten(bI.getX()) + "\t"
                     + shorten(bI.getY()) + "\t"
-                    + shorten(bI.getFitness()));
+                    + shorten(bI.getFitness()) + "\t"
+                    + shorten(tM - bI.getFitness()));
+        }
+
+        System.out.println();
+        System.out.println("Experiments comparing the binary and real encodings");
+        System.out.println();
+
+        System.out.println("Parent population: " + pPS);
+        System.out.println("Child population: " + cPS);
+        System.out.println("Generations: " + gen);
+        System.out.println("Selection rate: " + sR);
+        System.out.println("Mutation rate: " + mR);
+        System.out.println();
+
+        System.out.println("M\t|\tBGTRMF\tRGTRMF\tBGTRBI\tRGTRBI");
+        System.out.println();
+
+        for (int i = 0; i < milestones.length; i++) {
+            System.out.println(
+                    milestones[i] + "\t|\t"
+                    + wBin.getGenerationsTakenToReachMeanFitnessOf(milestones[i]) + "\t"
+                    + wReal.getGenerationsTakenToReachMeanFitnessOf(milestones[i]) + "\t"
+                    + wBin.getGenerationsTakenToReachBestIndividualFitnessOf(milestones[i]) + "\t"
+                    + wReal.getGenerationsTakenToReachBestIndividualFitnessOf(milestones[i]));
+        }
+
+        System.out.println();
+        System.out.println("Experiments comparing the optimisers");
+        System.out.println();
+
+        for (int i = 0; i < wOpt.length; i++) {
+            System.out.println(oNames[i] + ": " + wOpt[i].toString().replace(" \n", ", "));
+        }
+        System.out.println("MA local search: " + lSE + " elites, " + lSS + " steps, "
+                + wMem.getLocalSearchEvaluations() + " of "
+                + (wMem.getEvaluations() + wMem.getLocalSearchEvaluations()) + " evaluations");
+        System.out.println();
+
+        System.out.println("Generations and evaluations taken to reach each mean fitness");
+        System.out.println();
+
+        String header = "M\t|";
+        for (int i = 0; i < wOpt.length; i++) {
+            header += "\t" + oNames[i] + "G\t" + oNames[i] + "E";
+        }
+        System.out.println(header);
+        System.out.println();
+
+        for (int i = 0; i < milestones.length; i++) {
+            String row = milestones[i] + "\t|";
+            for (int j = 0; j < wOpt.length; j++) {
+                row += "\t" + wOpt[j].getGenerationsTakenToReachMeanFitnessOf(milestones[i])
+                        + "\t" + wOpt[j].getEvaluationsTakenToReachMeanFitnessOf(milestones[i]);
+            }
+            System.out.println(row);
+        }
+
+        System.out.println();
+        System.out.println("Generations and evaluations taken to reach each best individual fitness");
+        System.out.println();
+
+        System.out.println(header);
+        System.out.println();
+
+        for (int i = 0; i < milestones.length; i++) {
+            String row = milestones[i] + "\t|";
+            for (int j = 0; j < wOpt.length; j++) {
+                row += "\t" + wOpt[j].getGenerationsTakenToReachBestIndividualFitnessOf(milestones[i])
+                        + "\t" + wOpt[j].getEvaluationsTakenToReachBestIndividualFitnessOf(milestones[i]);
+            }
+            System.out.println(row);
+        }
+
+        System.out.println();
+        System.out.println("Experiments with fitness sharing");
+        System.out.println();
+
+        System.out.println("Parent population: " + pPS);
+        System.out.println("Child population: " + cPS);
+        System.out.println("Generations: " + gen);
+        System.out.println("Selection rate: " + sR);
+        System.out.println("Mutation rate: " + mR);
+        System.out.println("Seeds: 0 to " + (runs - 1));
+        System.out.println();
+        System.out.println("R\t|\tKEPT\tMMF");
+        System.out.println();
+
+        for (int i = 0; i < radii.length; i++) {
+            System.out.println(
+                    radii[i] + "\t|\t"
+                    + kept[i] + "/" + runs + "\t"
+                    + shorten(meanOfMeans[i]));
         }
     }
 
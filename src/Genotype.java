@@ -4,12 +4,16 @@
  *
  * @author Rob Impey
  */
+import java.util.*;
+import java.util.concurrent.*;
+
 public class Genotype {
     // Instance fields and class constants
     // -----------------------------------
 
     private boolean[] x, y; // The two numbers are stored as binary strings 
     private final static int BIN_LENGTH = 16; // The default length for the binary strings
+    private int version; // Incremented whenever the strings are changed
 
     // Constructors
     // ------------
@@ -25,17 +29,39 @@ public class Genotype {
         y = _y;
     }
 
+    /**
+     * Creates a new Genotype from x and y packed into one integer, as made by
+     * pack()
+     *
+     * @param _packed x in the high 16 bits and y in the low
+     */
+    public Genotype(int _packed) {
+        x = new boolean[BIN_LENGTH];
+        y = new boolean[BIN_LENGTH];
+        this.unpack(_packed);
+    }
+
     /**
      * Creates a new Genotype. The default length for the binary strings is 16
      * bits
      */
     public Genotype() {
+        this(ThreadLocalRandom.current());
+    }
+
+    /**
+     * Creates a new random Genotype. The default length for the binary strings
+     * is 16 bits
+     *
+     * @param _random The source of random numbers
+     */
+    public Genotype(Random _random) {
         x = new boolean[BIN_LENGTH];
         y = new boolean[BIN_LENGTH];
 
         for (int i = 0; i < BIN_LENGTH; i++) {
-            x[i] = (Math.random() < 0.5);
-            y[i] = (Math.random() < 0.5);
+            x[i] = (_random.nextDouble() < 0.5);
+            y[i] = (_random.nextDouble() < 0.5);
         }
     }
 
@@ -77,6 +103,13 @@ public class Genotype {
         return decY;
     }
 
+    /**
+     * @return x and y in one integer, x in the high 16 bits and y in the low
+     */
+    public int pack() {
+        return (this.getX() << BIN_LENGTH) | this.getY();
+    }
+
     /**
      * @return The x string
      */
@@ -91,6 +124,16 @@ public class Genotype {
         return y;
     }
 
+    /**
+     * The version changes every time the strings are mutated, so that anything
+     * derived from the strings (e.g. a fitness) can tell if it is out of date
+     *
+     * @return The version of the strings
+     */
+    public int getVersion() {
+        return version;
+    }
+
     /**
      * @return A string to represent the genotype
      */
@@ -126,6 +169,17 @@ public class Genotype {
      * @return The child
      */
     public Genotype cross(Genotype _mate) {
+        return this.cross(_mate, ThreadLocalRandom.current());
+    }
+
+    /**
+     * Recombines this genotype with another using uniform cross over
+     *
+     * @param _mate The other genotype
+     * @param _random The source of random numbers
+     * @return The child
+     */
+    public Genotype cross(Genotype _mate, Random _random) {
         // Set up the binary strings of the parents and child
         // One parent is already set up
         boolean[] mateX, mateY, childX, childY;
@@ -136,14 +190,14 @@ public class Genotype {
 
         for (int i = 0; i < BIN_LENGTH; i++) {
             // Make the child's x string
-            if (Math.random() < 0.5) {
+            if (_random.nextDouble() < 0.5) {
                 childX[i] = x[i];
             } else {
                 childX[i] = mateX[i];
             }
 
             // Make the child's y string
-            if (Math.random() < 0.5) {
+            if (_random.nextDouble() < 0.5) {
                 childY[i] = y[i];
             } else {
                 childY[i] = mateY[i];
@@ -153,22 +207,48 @@ public class Genotype {
         return new Genotype(childX, childY);
     }
 
+    /**
+     * Sets the strings from x and y packed into one integer, as made by pack()
+     *
+     * @param _packed x in the high 16 bits and y in the low
+     */
+    public void unpack(int _packed) {
+        for (int i = 0; i < BIN_LENGTH; i++) {
+            x[i] = ((_packed >>> (2 * BIN_LENGTH - 1 - i)) & 1) == 1;
+            y[i] = ((_packed >>> (BIN_LENGTH - 1 - i)) & 1) == 1;
+        }
+
+        version++;
+    }
+
     /**
      * Mutates the strings
      *
      * @param _mutationRate The rate by which to mutate the strings
      */
     public void mutate(double _mutationRate) {
+        this.mutate(_mutationRate, ThreadLocalRandom.current());
+    }
+
+    /**
+     * Mutates the strings
+     *
+     * @param _mutationRate The rate by which to mutate the strings
+     * @param _random The source of random numbers
+     */
+    public void mutate(double _mutationRate, Random _random) {
         for (int i = 0; i < BIN_LENGTH; i++) {
             // Mutate the x string
-            if (Math.random() < _mutationRate) {
+            if (_random.nextDouble() < _mutationRate) {
                 x[i] = !x[i];
             }
 
             // Mutate the y string
-            if (Math.random() < _mutationRate) {
+            if (_random.nextDouble() < _mutationRate) {
                 y[i] = !y[i];
             }
         }
+
+        version++;
     }
 }
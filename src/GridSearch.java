@@ -0,0 +1,319 @@
+/**
+ * Finds the true maximum of an Objective by trying every point a Genotype can
+ * represent, i.e. all 2^16 * 2^16 of them. This gives a baseline for judging
+ * how close a World came, and measures how fast the Objective can be
+ * evaluated.
+ *
+ * Rows of x are shared between threads. Each row is worked out into an array
+ * first and then scanned for the best points, so that the first loop has no
+ * branches and can be vectorised. For the ComplexFunction each point of a row
+ * is only two multiplications and an addition, as the factors in x and y are
+ * worked out once beforehand.
+ *
+ * @author Rob Impey
+ */
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+public class GridSearch {
+    // Instance fields and class constants
+    // -----------------------------------
+
+    private static final int SIDE = 1 << 16; // The number of values of x or y
+    private final Objective objective;
+    private final Phenotype[] top; // The best points, best first
+    private final double[] topFitnesses;
+    private final long elapsed; // In nanoseconds
+
+    // Constructors
+    // ------------
+    /**
+     * Searches the whole grid
+     *
+     * @param _objective The Objective
+     * @param _topK The number of best points to keep
+     * @param _threads The number of threads to search with
+     */
+    public GridSearch(Objective _objective, int _topK, int _threads) {
+        objective = _objective;
+        long started = System.nanoTime();
+
+        TopK best = this.search(Math.max(1, _topK), Math.max(1, _threads));
+        int[] genomes = new int[best.size];
+        topFitnesses = new double[best.size];
+        best.drain(genomes, topFitnesses);
+
+        top = new Phenotype[genomes.length];
+        for (int i = 0; i < top.length; i++) {
+            top[i] = new Phenotype(new Genotype(genomes[i]));
+        }
+
+        elapsed = System.nanoTime() - started;
+    }
+
+    // Access methods
+    // --------------
+    /**
+     * @return The point with the highest value of the Objective
+     */
+    public Phenotype getBest() {
+        return top[0];
+    }
+
+    /**
+     * @return The value of the Objective at the best point
+     */
+    public double getBestFitness() {
+        return topFitnesses[0];
+    }
+
+    /**
+     * @param _i The rank of the requested point, 0 being the best
+     * @return The point
+     */
+    public Phenotype getTop(int _i) {
+        return top[_i];
+    }
+
+    /**
+     * @param _i The rank of the requested point, 0 being the best
+     * @return The value of the Objective at the point
+     */
+    public double getTopFitness(int _i) {
+        return topFitnesses[_i];
+    }
+
+    /**
+     * @return The number of best points kept
+     */
+    public int getTopSize() {
+        return top.length;
+    }
+
+    /**
+     * @return How long the search took in milliseconds
+     */
+    public double getElapsedMillis() {
+        return elapsed / 1000000.0;
+    }
+
+    /**
+     * @return The number of points evaluated per second
+     */
+    public double getPointsPerSecond() {
+        return (double) SIDE * SIDE / (elapsed / 1000000000.0);
+    }
+
+    /**
+     * @return A String to represent the results
+     */
+    @Override
+    public String toString() {
+        String s = "Best: x: " + top[0].getX()
+                + " y: " + top[0].getY()
+                + " f(x, y): " + topFitnesses[0] + " \n"
+                + "Time (ms): " + this.getElapsedMillis() + " \n"
+                + "Points per second: " + this.getPointsPerSecond();
+
+        for (int i = 1; i < top.length; i++) {
+            s += " \n" + (i + 1) + ": x: " + top[i].getX()
+                    + " y: " + top[i].getY()
+                    + " f(x, y): " + topFitnesses[i];
+        }
+
+        return s;
+    }
+
+    // Methods for searching
+    // ---------------------
+    /**
+     * @param _topK The number of best points to keep
+     * @param _threads The number of threads
+     * @return The best points of the whole grid
+     */
+    private TopK search(final int _topK, int _threads) {
+        final double[] reals = new double[SIDE]; // The decoded value of each x or y
+        for (int i = 0; i < SIDE; i++) {
+            reals[i] = Phenotype.decode(i);
+        }
+
+        final boolean separable = objective instanceof ComplexFunction; // Final, so evaluate cannot be overridden
+        final double[] yPeak1 = new double[SIDE];
+        final double[] yPeak2 = new double[SIDE];
+        if (separable) {
+            for (int i = 0; i < SIDE; i++) {
+                yPeak1[i] = ComplexFunction.yPeak1(reals[i]);
+                yPeak2[i] = ComplexFunction.yPeak2(reals[i]);
+            }
+        }
+
+        final AtomicInteger nextRow = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(_threads);
+        List<Future<TopK>> results = new ArrayList<Future<TopK>>();
+
+        for (int t = 0; t < _threads; t++) {
+            results.add(pool.submit(new Callable<TopK>() {
+                @Override
+                public TopK call() {
+                    TopK best = new TopK(_topK);
+                    double[] row = new double[SIDE];
+
+                    for (int x = nextRow.getAndIncrement(); x < SIDE; x = nextRow.getAndIncrement()) {
+                        if (separable) {
+                            fillRow(row,
+                                    ComplexFunction.xPeak1(reals[x]), yPeak1,
+                                    ComplexFunction.xPeak2(reals[x]), yPeak2);
+                        } else {
+                            for (int y = 0; y < SIDE; y++) {
+                                row[y] = objective.evaluate(reals[x], reals[y]);
+                            }
+                        }
+
+                        double threshold = best.threshold();
+                        for (int y = firstAbove(row, 0, threshold); y < SIDE; y = firstAbove(row, y + 1, threshold)) {
+                            best.offer(row[y], (x << 16) | y);
+                            threshold = best.threshold();
+                        }
+                    }
+
+                    return best;
+                }
+            }));
+        }
+
+        TopK best = new TopK(_topK);
+        try {
+            for (Future<TopK> f : results) {
+                best.merge(f.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while searching", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("The objective failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+
+        return best;
+    }
+
+    /**
+     * Works out a row of the ComplexFunction from its factors. This is kept in
+     * its own small method so that the JIT compiles and vectorises it
+     * properly, rather than as part of one long running loop.
+     *
+     * @param _row The row to fill
+     * @param _a1 The x factor of the first peak
+     * @param _yPeak1 The y factors of the first peak
+     * @param _a2 The x factor of the second peak
+     * @param _yPeak2 The y factors of the second peak
+     */
+    private static void fillRow(double[] _row, double _a1, double[] _yPeak1, double _a2, double[] _yPeak2) {
+        for (int y = 0; y < _row.length; y++) {
+            _row[y] = _a1 * _yPeak1[y] + _a2 * _yPeak2[y];
+        }
+    }
+
+    /**
+     * @param _row A row
+     * @param _from The index to start looking at
+     * @param _threshold The value to beat
+     * @return The index of the first value above the threshold, or the length
+     * of the row if there is none
+     */
+    private static int firstAbove(double[] _row, int _from, double _threshold) {
+        int y = _from;
+        while (y < _row.length && _row[y] <= _threshold) {
+            y++;
+        }
+
+        return y;
+    }
+
+    /**
+     * The best k points seen, kept in a min-heap so that the worst of them is
+     * at the top, ready to be replaced
+     */
+    private static class TopK {
+
+        private final double[] fitnesses;
+        private final int[] genomes;
+        private int size;
+
+        TopK(int _k) {
+            fitnesses = new double[_k];
+            genomes = new int[_k];
+        }
+
+        /**
+         * @return The fitness a point needs to get in
+         */
+        double threshold() {
+            return size < fitnesses.length ? Double.NEGATIVE_INFINITY : fitnesses[0];
+        }
+
+        void offer(double _fitness, int _genome) {
+            if (size < fitnesses.length) {
+                // Add at the bottom and sift up
+                int i = size++;
+                while (i > 0 && fitnesses[(i - 1) / 2] > _fitness) {
+                    fitnesses[i] = fitnesses[(i - 1) / 2];
+                    genomes[i] = genomes[(i - 1) / 2];
+                    i = (i - 1) / 2;
+                }
+                fitnesses[i] = _fitness;
+                genomes[i] = _genome;
+            } else if (_fitness > fitnesses[0]) {
+                this.replaceTop(_fitness, _genome);
+            }
+        }
+
+        void merge(TopK _other) {
+            for (int i = 0; i < _other.size; i++) {
+                this.offer(_other.fitnesses[i], _other.genomes[i]);
+            }
+        }
+
+        /**
+         * Empties the heap into arrays, best first
+         */
+        void drain(int[] _genomes, double[] _fitnesses) {
+            for (int i = size - 1; i >= 0; i--) {
+                _genomes[i] = genomes[0];
+                _fitnesses[i] = fitnesses[0];
+                size--;
+                if (size > 0) {
+                    int lastGenome = genomes[size];
+                    double lastFitness = fitnesses[size];
+                    this.replaceTop(lastFitness, lastGenome);
+                }
+            }
+        }
+
+        /**
+         * Puts a point at the top and sifts it down
+         */
+        private void replaceTop(double _fitness, int _genome) {
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && fitnesses[child + 1] < fitnesses[child]) {
+                    child++;
+                }
+                if (fitnesses[child] >= _fitness) {
+                    break;
+                }
+                fitnesses[i] = fitnesses[child];
+                genomes[i] = genomes[child];
+                i = child;
+            }
+            fitnesses[i] = _fitness;
+            genomes[i] = _genome;
+        }
+    }
+}
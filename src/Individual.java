@@ -0,0 +1,22 @@
+/**
+ * A point whose fitness has been found, however it is encoded
+ *
+ * @author Rob Impey
+ */
+public interface Individual {
+
+    /**
+     * @return The value of x as a real
+     */
+    double getX();
+
+    /**
+     * @return The value of y as a real
+     */
+    double getY();
+
+    /**
+     * @return The fitness, the larger the better
+     */
+    double getFitness();
+}
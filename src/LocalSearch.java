@@ -0,0 +1,197 @@
+/**
+ * A local search stage for a memetic algorithm. The best few individuals in a
+ * population are improved by bit-flip hill climbing: each bit is flipped in
+ * turn, from the most significant down, and a flip is kept if it makes the
+ * individual fitter. Climbing stops when no single flip helps or when the
+ * individual's steps run out.
+ *
+ * A flip changes only one coordinate, so only that coordinate's factors of
+ * the complex function are worked out again (see ComplexFunction). The
+ * individuals are climbed in parallel, and an individual already known to be
+ * at the top of a hill is not climbed again.
+ *
+ * @author Rob Impey
+ */
+import java.util.*;
+import java.util.concurrent.*;
+
+public class LocalSearch {
+    // Instance fields and class constants
+    // -----------------------------------
+
+    private static final int BITS = 16; // In each coordinate
+    private final int elites; // How many of the best individuals to climb
+    private final int steps; // The most flips to try for each one
+    private final Set<Integer> localOptima = new HashSet<Integer>(); // Packed genomes no flip can improve
+
+    // Constructors
+    // ------------
+    /**
+     * @param _elites How many of the best individuals to climb
+     * @param _steps The most flips to try for each, each costing a fitness
+     * evaluation
+     */
+    public LocalSearch(int _elites, int _steps) {
+        elites = _elites;
+        steps = _steps;
+    }
+
+    // Access methods
+    // --------------
+    /**
+     * @return How many of the best individuals are climbed
+     */
+    public int getElites() {
+        return elites;
+    }
+
+    /**
+     * @return The most flips tried for each individual
+     */
+    public int getSteps() {
+        return steps;
+    }
+
+    // Methods for local search
+    // ------------------------
+    /**
+     * Climbs the best individuals with different genomes. An improved
+     * individual has its genotype changed in place, so it is improved
+     * wherever else it appears. The individuals must have the complex
+     * function's fitness rather than one from an Evaluator.
+     *
+     * @param _population The population
+     * @param _pool The threads to climb on, or null to climb on this thread
+     * @return The number of fitness evaluations made
+     */
+    public long improve(Population _population, ExecutorService _pool) {
+        // The best individuals with different genomes, leaving out any
+        // already at the top of a hill
+        Phenotype[] best = _population.getBestDistinct(elites);
+        final Phenotype[] climbers = new Phenotype[best.length];
+        final int[] genomes = new int[best.length];
+        final double[] fitnesses = new double[best.length];
+        final int[] used = new int[best.length]; // Evaluations by each climber
+        final boolean[] atTop = new boolean[best.length];
+        int count = 0;
+
+        for (int i = 0; i < best.length; i++) {
+            int genome = best[i].getGenotype().pack();
+            if (!localOptima.contains(genome)) {
+                climbers[count] = best[i];
+                genomes[count] = genome;
+                fitnesses[count] = best[i].getFitness();
+                count++;
+            }
+        }
+
+        // Climb them, each on its own thread if there are threads
+        if (_pool == null || count < 2) {
+            for (int i = 0; i < count; i++) {
+                this.climb(i, genomes, fitnesses, used, atTop);
+            }
+        } else {
+            List<Future<?>> futures = new ArrayList<Future<?>>(count);
+            for (int i = 0; i < count; i++) {
+                final int climber = i;
+                futures.add(_pool.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        LocalSearch.this.climb(climber, genomes, fitnesses, used, atTop);
+                    }
+                }));
+            }
+
+            try {
+                for (int i = 0; i < futures.size(); i++) {
+                    futures.get(i).get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while climbing", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Climbing failed", e.getCause());
+            }
+        }
+
+        // Keep the improvements, back on this thread
+        long evaluations = 0;
+        for (int i = 0; i < count; i++) {
+            evaluations += used[i];
+            if (genomes[i] != climbers[i].getGenotype().pack()) {
+                climbers[i].getGenotype().unpack(genomes[i]);
+                climbers[i].setFitness(fitnesses[i]);
+            }
+            if (atTop[i]) {
+                localOptima.add(genomes[i]);
+            }
+        }
+
+        return evaluations;
+    }
+
+    /**
+     * Climbs one individual, replacing its genome and fitness with the
+     * improved ones
+     *
+     * @param _i The index of the individual
+     * @param _genomes The packed genome of each individual
+     * @param _fitnesses The fitness of each individual
+     * @param _used Where to put the number of evaluations made
+     * @param _atTop Where to put whether the climb reached the top of a hill
+     */
+    private void climb(int _i, int[] _genomes, double[] _fitnesses, int[] _used, boolean[] _atTop) {
+        int x = _genomes[_i] >>> BITS;
+        int y = _genomes[_i] & ((1 << BITS) - 1);
+        double fitness = _fitnesses[_i];
+
+        // The factors of the current fitness
+        double x1 = ComplexFunction.xPeak1(Phenotype.decode(x));
+        double x2 = ComplexFunction.xPeak2(Phenotype.decode(x));
+        double y1 = ComplexFunction.yPeak1(Phenotype.decode(y));
+        double y2 = ComplexFunction.yPeak2(Phenotype.decode(y));
+
+        int used = 0;
+        int failures = 0; // Flips tried since the last improvement
+        int flip = 0; // 0 to 15 for the bits of x, 16 to 31 for those of y
+
+        while (used < steps && failures < 2 * BITS) {
+            used++;
+            if (flip < BITS) {
+                int newX = x ^ (1 << (BITS - 1 - flip));
+                double newX1 = ComplexFunction.xPeak1(Phenotype.decode(newX));
+                double newX2 = ComplexFunction.xPeak2(Phenotype.decode(newX));
+                double newFitness = newX1 * y1 + newX2 * y2;
+                if (newFitness > fitness) {
+                    x = newX;
+                    x1 = newX1;
+                    x2 = newX2;
+                    fitness = newFitness;
+                    failures = 0;
+                } else {
+                    failures++;
+                }
+            } else {
+                int newY = y ^ (1 << (2 * BITS - 1 - flip));
+                double newY1 = ComplexFunction.yPeak1(Phenotype.decode(newY));
+                double newY2 = ComplexFunction.yPeak2(Phenotype.decode(newY));
+                double newFitness = x1 * newY1 + x2 * newY2;
+                if (newFitness > fitness) {
+                    y = newY;
+                    y1 = newY1;
+                    y2 = newY2;
+                    fitness = newFitness;
+                    failures = 0;
+                } else {
+                    failures++;
+                }
+            }
+            flip = (flip + 1) % (2 * BITS);
+        }
+
+        _genomes[_i] = (x << BITS) | y;
+        _fitnesses[_i] = fitness;
+        _used[_i] = used;
+        _atTop[_i] = failures >= 2 * BITS;
+    }
+}
@@ -0,0 +1,16 @@
+/**
+ * A function of two real numbers whose maximum is sought. It may be slow, e.g.
+ * if it waits on another process or a simulator, so it is evaluated through an
+ * Evaluator
+ *
+ * @author Rob Impey
+ */
+public interface Objective {
+
+    /**
+     * @param _x The value of x
+     * @param _y The value of y
+     * @return f(x, y), the larger the better
+     */
+    double evaluate(double _x, double _y);
+}
@@ -0,0 +1,240 @@
+/**
+ * A long running process that evolves Worlds on request, so that many short
+ * experiments share one warmed up JVM instead of each paying for start up
+ * and JIT compilation.
+ *
+ * Clients connect to a port on the loopback address and send one job per line:
+ * <code>
+ *  id parents children generations selectionRate mutationRate [seed]
+ * </code>
+ * Jobs from every client share a queue served by one thread per core. A line
+ * is sent back for each job as soon as it finishes, which may not be in the
+ * order the jobs were sent:
+ * <code>
+ *  id queuedMs runMs GWBMF BMF GWBI BIX BIY BIF
+ * </code>
+ * or <code>id ERROR message</code> for a job that could not be run, e.g.
+ * because its populations or generations are too large. A client may have
+ * at most MAX_PENDING_JOBS jobs unfinished; beyond that, its further lines
+ * are not read until one finishes. The connection is closed once the client
+ * has closed its side and every job it sent has finished.
+ *
+ * @author Rob Impey
+ */
+import java.io.*;
+import java.net.*;
+import java.util.concurrent.*;
+
+public class OptimisationDaemon {
+    // Instance fields and class constants
+    // -----------------------------------
+
+    private static final int DEFAULT_PORT = 7531;
+    private static final int WARM_UP_RUNS = 20;
+    private static final int MAX_PENDING_JOBS = 1024; // Per client
+    private static final int MAX_POPULATION = 100000; // Parents or children in a job
+    private static final int MAX_GENERATIONS = 100000;
+    private final ServerSocket server;
+    private final ExecutorService workers;
+
+    // Constructors
+    // ------------
+    /**
+     * @param _port The port to listen on, or 0 for any free port
+     * @param _threads The number of jobs to run at once
+     * @throws IOException If the port cannot be opened
+     */
+    public OptimisationDaemon(int _port, int _threads) throws IOException {
+        server = new ServerSocket(_port, 50, InetAddress.getLoopbackAddress());
+        workers = Executors.newFixedThreadPool(Math.max(1, _threads));
+    }
+
+    /**
+     * Starts a daemon and serves until killed
+     *
+     * @param args The port, and optionally the number of jobs to run at once
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int threads = args.length > 1
+                ? Integer.parseInt(args[1])
+                : Runtime.getRuntime().availableProcessors();
+
+        OptimisationDaemon daemon = new OptimisationDaemon(port, threads);
+        daemon.warmUp();
+        System.err.println("Listening on " + daemon.getPort() + " with " + threads + " threads");
+        daemon.serve();
+    }
+
+    // Access methods
+    // --------------
+    /**
+     * @return The port being listened on
+     */
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    // Methods for serving
+    // -------------------
+    /**
+     * Evolves some small Worlds so that the JIT has compiled the evolution
+     * code before the first real job arrives
+     */
+    public void warmUp() {
+        for (int i = 0; i < WARM_UP_RUNS; i++) {
+            new World(60, 60, 60, 0.5, 0.1);
+        }
+    }
+
+    /**
+     * Accepts clients until the server socket is closed, handling each on its
+     * own thread
+     */
+    public void serve() throws IOException {
+        while (!server.isClosed()) {
+            final Socket client = server.accept();
+            Thread t = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    handle(client);
+                }
+            }, "daemon-client");
+            t.setDaemon(true);
+            t.start();
+        }
+    }
+
+    /**
+     * Stops accepting clients and running jobs
+     */
+    public void shutdown() throws IOException {
+        server.close();
+        workers.shutdownNow();
+    }
+
+    /**
+     * Reads jobs from a client and sends back their results
+     *
+     * @param _client The client's socket
+     */
+    private void handle(Socket _client) {
+        final PrintWriter out;
+        final Semaphore jobs = new Semaphore(MAX_PENDING_JOBS); // A permit for each job the client may have unfinished
+
+        try {
+            BufferedReader in = new BufferedReader(new InputStreamReader(_client.getInputStream(), "UTF-8"));
+            out = new PrintWriter(new OutputStreamWriter(_client.getOutputStream(), "UTF-8"));
+
+            String line;
+            while ((line = in.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+
+                final String[] fields = line.split("\\s+");
+                final long queued = System.nanoTime();
+                jobs.acquireUninterruptibly(); // Stop reading while the client has too many jobs
+                try {
+                    workers.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                String result = runJob(fields, queued);
+                                synchronized (out) {
+                                    out.println(result);
+                                    out.flush();
+                                }
+                            } finally {
+                                jobs.release();
+                            }
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    jobs.release();
+                    throw new IOException("The daemon is shutting down", e);
+                }
+            }
+
+            jobs.acquireUninterruptibly(MAX_PENDING_JOBS); // Wait for the client's jobs before closing
+        } catch (IOException e) {
+            System.err.println("Client failed: " + e.getMessage());
+        } finally {
+            try {
+                _client.close();
+            } catch (IOException e) {
+                // Nothing more can be done for this client
+            }
+        }
+    }
+
+    /**
+     * Runs one job
+     *
+     * @param _fields The fields of the job's line
+     * @param _queued When the job was queued, from System.nanoTime
+     * @return The line to send back
+     */
+    static String runJob(String[] _fields, long _queued) {
+        String id = _fields[0];
+        try {
+            if (_fields.length < 6 || _fields.length > 7) {
+                throw new IllegalArgumentException("Expected 6 or 7 fields but got " + _fields.length);
+            }
+
+            int parents = parseInRange(_fields[1], "parents", 1, MAX_POPULATION);
+            int children = parseInRange(_fields[2], "children", 1, MAX_POPULATION);
+            int generations = parseInRange(_fields[3], "generations", 0, MAX_GENERATIONS);
+            double selectionRate = Double.parseDouble(_fields[4]);
+            double mutationRate = Double.parseDouble(_fields[5]);
+            if (!(selectionRate > 0.0 && selectionRate <= 1.0)) {
+                throw new IllegalArgumentException("The selection rate must be above 0 and at most 1");
+            }
+            if (!(mutationRate >= 0.0 && mutationRate <= 1.0)) {
+                throw new IllegalArgumentException("The mutation rate must be from 0 to 1");
+            }
+
+            World world = new World(parents, children, generations, selectionRate, mutationRate, null);
+            if (_fields.length == 7) {
+                world.setSeed(Long.parseLong(_fields[6]));
+            }
+
+            long started = System.nanoTime();
+            world.evolve();
+            long finished = System.nanoTime();
+
+            int gWBMF = world.getGenerationWithBestMeanFitness();
+            int gWBI = world.getGenerationWithBestIndividual();
+            Phenotype bI = world.getBestIndividualInGeneration(gWBI);
+
+            return id + " "
+                    + (started - _queued) / 1000000 + " "
+                    + (finished - started) / 1000000 + " "
+                    + gWBMF + " "
+                    + world.getMeanFitnessOfGeneration(gWBMF) + " "
+                    + gWBI + " "
+                    + bI.getX() + " "
+                    + bI.getY() + " "
+                    + bI.getFitness();
+        } catch (RuntimeException e) {
+            return id + " ERROR " + e;
+        }
+    }
+
+    /**
+     * @param _field The field
+     * @param _name What the field is, for the error message
+     * @param _min The smallest allowed value
+     * @param _max The largest allowed value
+     * @return The field's value
+     */
+    private static int parseInRange(String _field, String _name, int _min, int _max) {
+        int value = Integer.parseInt(_field);
+        if (value < _min || value > _max) {
+            throw new IllegalArgumentException("The " + _name + " must be from " + _min + " to " + _max);
+        }
+
+        return value;
+    }
+}
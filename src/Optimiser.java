@@ -0,0 +1,244 @@
+/**
+ * Something that seeks the maximum of the complex function a generation at a
+ * time, e.g. a World. Whatever the method, the same empirical data is kept
+ * for each generation, so different optimisers can be compared directly.
+ *
+ * @author Rob Impey
+ */
+public abstract class Optimiser {
+    // Instance fields and class constants
+    // -----------------------------------
+
+    private final int generations;
+    private final double[] meanFitnesses; // To store the mean fitness of each generation
+    private final Individual[] bestIndividuals; // To store the best individual from each generation
+    private final long[] evaluations; // To store the evaluations made by the end of each generation
+    private int generationsCompleted; // Fewer than generations if evolution was stopped
+
+    // The constructors
+    // ----------------
+    /**
+     * @param _generations The number of generations to evolve for
+     */
+    protected Optimiser(int _generations) {
+        generations = _generations;
+        meanFitnesses = new double[generations + 1]; // Fence post issues
+        bestIndividuals = new Individual[generations + 1]; // We want data both before and after evolution
+        evaluations = new long[generations + 1];
+        generationsCompleted = generations;
+    }
+
+    // Access methods
+    // --------------
+    /**
+     * @return The number of generations to evolve for
+     */
+    public int getGenerations() {
+        return generations;
+    }
+
+    /**
+     * @return The number of generations evolved, which is fewer than
+     * getGenerations() if evolution was stopped early
+     */
+    public int getGenerationsCompleted() {
+        return generationsCompleted;
+    }
+
+    // Methods for empirical data
+    // --------------------------
+    /**
+     * @param _generation The generation of the requested mean fitness
+     * @return The mean fitness of the _generationth generation
+     */
+    public double getMeanFitnessOfGeneration(int _generation) {
+        return meanFitnesses[_generation];
+    }
+
+    /**
+     * @param _generation The generation of the requested best individual
+     * @return The best individual in the _generationth generation
+     */
+    public Individual getBestIndividualInGeneration(int _generation) {
+        return bestIndividuals[_generation];
+    }
+
+    /**
+     * @param _generation The generation
+     * @return The number of fitness evaluations made up to the
+     * _generationth generation
+     */
+    public long getEvaluationsByGeneration(int _generation) {
+        return evaluations[_generation];
+    }
+
+    /**
+     * Instead of a method to return the best mean fitness, the generation with
+     * the best mean fitness should be found first. Then the mean fitness of
+     * that generation should be found with
+     * <code>
+     *  int gWBMF = world.getGenerationWithBestMeanFitness();
+     * <br>
+     * double bMF = world.getMeanFitnessOfGeneration(gWBMF);
+     * </code>
+     *
+     * @return The generation with the best mean fitness
+     */
+    public int getGenerationWithBestMeanFitness() {
+
+        int best = 0;
+        for (int i = 1; i <= generationsCompleted; i++) {
+            if (meanFitnesses[best] < meanFitnesses[i]) {
+                best = i;
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * @return The generation in which the best individual was produced
+     */
+    public int getGenerationWithBestIndividual() {
+        int best = 0;
+        for (int i = 1; i <= generationsCompleted; i++) {
+            if (bestIndividuals[best].getFitness() < bestIndividuals[i].getFitness()) {
+                best = i;
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * Tells the user the generation in which some milestone in mean fitness
+     * improvement was reached. If the milestone was not reached, -1 is
+     * returned.
+     *
+     * @param _milestone The milestone
+     * @return The generation in which a mean fitness of _milestone was reached
+     */
+    public int getGenerationsTakenToReachMeanFitnessOf(double _milestone) {
+        int generationOfMilestone = -1;
+        int currentGeneration = 0;
+
+        while ((generationOfMilestone == -1) && (currentGeneration <= generationsCompleted)) {
+            if (meanFitnesses[currentGeneration] >= _milestone) {
+                generationOfMilestone = currentGeneration;
+            }
+
+            currentGeneration++;
+        }
+
+        return generationOfMilestone;
+    }
+
+    /**
+     * Tells the user the generation in which some milestone in best individual
+     * improvement was reached. If the milestone was not reached, -1 is
+     * returned.
+     *
+     * @param _milestone The milestone
+     * @return The first generation in which an individual with a fitness of
+     * _milestone or greater
+     */
+    public int getGenerationsTakenToReachBestIndividualFitnessOf(double _milestone) {
+        int generationOfMilestone = -1;
+        int currentGeneration = 0;
+
+        while ((generationOfMilestone == -1) && (currentGeneration <= generationsCompleted)) {
+            if (bestIndividuals[currentGeneration].getFitness() >= _milestone) {
+                generationOfMilestone = currentGeneration;
+            }
+
+            currentGeneration++;
+        }
+
+        return generationOfMilestone;
+    }
+
+    /**
+     * Like getGenerationsTakenToReachMeanFitnessOf, but counting fitness
+     * evaluations, which is fairer between optimisers whose generations are
+     * of different sizes
+     *
+     * @param _milestone The milestone
+     * @return The evaluations made by the generation in which a mean fitness
+     * of _milestone was reached, or -1
+     */
+    public long getEvaluationsTakenToReachMeanFitnessOf(double _milestone) {
+        int generation = this.getGenerationsTakenToReachMeanFitnessOf(_milestone);
+        return generation == -1 ? -1 : evaluations[generation];
+    }
+
+    /**
+     * Like getGenerationsTakenToReachBestIndividualFitnessOf, but counting
+     * fitness evaluations
+     *
+     * @param _milestone The milestone
+     * @return The evaluations made by the first generation with an individual
+     * with a fitness of _milestone or greater, or -1
+     */
+    public long getEvaluationsTakenToReachBestIndividualFitnessOf(double _milestone) {
+        int generation = this.getGenerationsTakenToReachBestIndividualFitnessOf(_milestone);
+        return generation == -1 ? -1 : evaluations[generation];
+    }
+
+    // Methods for evolution
+    // ---------------------
+    /**
+     * Performs evolution, recording each generation
+     */
+    public abstract void evolve();
+
+    /**
+     * Records the data for a generation
+     *
+     * @param _generation The generation
+     * @param _meanFitness Its mean fitness
+     * @param _bestIndividual Its best individual
+     * @param _evaluations The fitness evaluations made so far
+     */
+    protected void record(int _generation, double _meanFitness, Individual _bestIndividual, long _evaluations) {
+        meanFitnesses[_generation] = _meanFitness;
+        bestIndividuals[_generation] = _bestIndividual;
+        evaluations[_generation] = _evaluations;
+    }
+
+    /**
+     * @param _generationsCompleted The number of generations evolved, if
+     * evolution stopped early
+     */
+    protected void setGenerationsCompleted(int _generationsCompleted) {
+        generationsCompleted = _generationsCompleted;
+    }
+
+    /**
+     * @param _fitnesses The fitnesses of a generation
+     * @return Their mean
+     */
+    protected static double mean(double[] _fitnesses) {
+        double total = 0.0;
+        for (int i = 0; i < _fitnesses.length; i++) {
+            total += _fitnesses[i];
+        }
+
+        return total / _fitnesses.length;
+    }
+
+    /**
+     * @param _points The x and y of each point
+     * @param _fitnesses The fitness of each point
+     * @return The fittest point
+     */
+    protected static RealIndividual best(double[][] _points, double[] _fitnesses) {
+        int best = 0;
+        for (int i = 1; i < _fitnesses.length; i++) {
+            if (_fitnesses[best] < _fitnesses[i]) {
+                best = i;
+            }
+        }
+
+        return new RealIndividual(_points[0][best], _points[1][best], _fitnesses[best]);
+    }
+}
@@ -0,0 +1,408 @@
+/**
+ * A Population kept outside the Java heap, for populations too large to hold
+ * as Phenotype objects. Each individual is a genome packed into an int (see
+ * Genotype.pack) and a fitness, stored in direct buffers or in a memory mapped
+ * file, so the garbage collector never has to look at them.
+ *
+ * Direct buffers count against -XX:MaxDirectMemorySize, which defaults to the
+ * maximum heap size; file backed populations do not.
+ *
+ * @author Rob Impey
+ */
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+
+public class PackedPopulation {
+    // Instance fields and class constants
+    // -----------------------------------
+
+    /**
+     * The largest capacity, as a buffer can hold at most 2^31 bytes
+     */
+    public static final int MAX_CAPACITY = Integer.MAX_VALUE / 12;
+    private final IntBuffer genomes;
+    private final DoubleBuffer fitnesses;
+    private final int capacity;
+    private int size;
+
+    // Constructors
+    // ------------
+    /**
+     * Creates an empty population in direct buffers
+     *
+     * @param _capacity The most individuals the population can hold
+     */
+    public PackedPopulation(int _capacity) {
+        if (_capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("A packed population can hold at most " + MAX_CAPACITY);
+        }
+        capacity = _capacity;
+        genomes = ByteBuffer.allocateDirect(4 * _capacity).order(ByteOrder.nativeOrder()).asIntBuffer();
+        fitnesses = ByteBuffer.allocateDirect(8 * _capacity).order(ByteOrder.nativeOrder()).asDoubleBuffer();
+    }
+
+    /**
+     * Creates an empty population in a memory mapped file. The file may be
+     * deleted once the population has been made.
+     *
+     * @param _capacity The most individuals the population can hold
+     * @param _file The file
+     * @throws IOException If the file cannot be mapped
+     */
+    public PackedPopulation(int _capacity, File _file) throws IOException {
+        if (_capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("A packed population can hold at most " + MAX_CAPACITY);
+        }
+        capacity = _capacity;
+        RandomAccessFile raf = new RandomAccessFile(_file, "rw");
+        try {
+            MappedByteBuffer map = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, 12L * _capacity);
+            map.order(ByteOrder.nativeOrder());
+            map.limit(4 * _capacity);
+            genomes = map.slice().order(ByteOrder.nativeOrder()).asIntBuffer();
+            map.limit(12 * _capacity).position(4 * _capacity);
+            fitnesses = map.slice().order(ByteOrder.nativeOrder()).asDoubleBuffer();
+        } finally {
+            raf.close(); // The mapping stays valid
+        }
+    }
+
+    // Access methods
+    // --------------
+    /**
+     * @return The size of the population
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return The most individuals the population can hold
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return The mean fitness of the population
+     */
+    public double getMeanFitness() {
+        double total = 0.0;
+
+        for (int i = 0; i < size; i++) {
+            total += fitnesses.get(i);
+        }
+
+        return total / size;
+    }
+
+    /**
+     * @return The index of the fittest individual
+     */
+    public int getBestIndex() {
+        int best = 0;
+        for (int i = 1; i < size; i++) {
+            if (fitnesses.get(best) < fitnesses.get(i)) {
+                best = i;
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * @param _i The index of the requested individual
+     * @return A Phenotype copied from the _ith individual
+     */
+    public Phenotype getPhenotype(int _i) {
+        return new Phenotype(new Genotype(genomes.get(_i)));
+    }
+
+    /**
+     * The diversity is measured on a random sample, as a full measure would
+     * need the whole population on the heap. The unique genomes are those in
+     * the sample.
+     *
+     * @param _sampleSize The most individuals to measure
+     * @param _random The source of random numbers
+     * @return Measures of how varied the population is
+     */
+    public Diversity getDiversity(int _sampleSize, Random _random) {
+        Phenotype[] sample = new Phenotype[Math.min(size, _sampleSize)];
+        for (int i = 0; i < sample.length; i++) {
+            sample[i] = this.getPhenotype(sample.length == size ? i : _random.nextInt(size));
+        }
+
+        return new Diversity(new Population(sample));
+    }
+
+    // Evolutionary Methods
+    // --------------------
+    /**
+     * Empties the population, keeping its storage
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Fills the population with random individuals
+     *
+     * @param _size The size of the population
+     * @param _random The source of random numbers
+     */
+    public void randomise(int _size, Random _random) {
+        size = _size;
+        for (int i = 0; i < size; i++) {
+            genomes.put(i, _random.nextInt());
+        }
+    }
+
+    /**
+     * Works out the fitness of every individual
+     */
+    public void evaluate() {
+        this.evaluate(0, size);
+    }
+
+    /**
+     * Works out the fitness of some of the individuals. Different ranges may
+     * be evaluated on different threads at once.
+     *
+     * @param _from The index of the first individual
+     * @param _to The index after the last individual
+     */
+    public void evaluate(int _from, int _to) {
+        for (int i = _from; i < _to; i++) {
+            int g = genomes.get(i);
+            fitnesses.put(i, Phenotype.fitnessOf(
+                    Phenotype.decode(g >>> 16),
+                    Phenotype.decode(g & 0xFFFF)));
+        }
+    }
+
+    /**
+     * Selects an individual using binary tournament selection among the first
+     * _pool individuals
+     *
+     * @param _pool The number of individuals to choose from
+     * @param _random The source of random numbers
+     * @return The index of the selected individual
+     */
+    public int binaryTournamentSelectIndex(int _pool, Random _random) {
+        int i1 = _random.nextInt(_pool);
+        int i2 = _random.nextInt(_pool);
+        double f1 = fitnesses.get(i1);
+        double f2 = fitnesses.get(i2);
+
+        if (f1 > f2) {
+            return i1;
+        } else if (f1 < f2) {
+            return i2;
+        } else {
+            return _random.nextBoolean() ? i1 : i2; // They have the same fitness, so return either
+        }
+    }
+
+    /**
+     * Adds individuals chosen from this population by tournament to another
+     *
+     * @param _other The population to add to, which must not be this one
+     * @param _count The number to select
+     * @param _random The source of random numbers
+     */
+    public void binaryTournamentSelectInto(PackedPopulation _other, int _count, Random _random) {
+        for (int i = 0; i < _count; i++) {
+            int selected = this.binaryTournamentSelectIndex(size, _random);
+            _other.add(genomes.get(selected), fitnesses.get(selected));
+        }
+    }
+
+    /**
+     * Adds children bred from the first _parents individuals using uniform
+     * cross over. The children have no fitness until evaluate is called.
+     *
+     * @param _parents The number of individuals at the start to breed from
+     * @param _children The number of children to add
+     * @param _random The source of random numbers
+     */
+    public void breed(int _parents, int _children, Random _random) {
+        int from = size;
+        this.grow(_children);
+        this.breed(_parents, from, size, _random);
+    }
+
+    /**
+     * Breeds children from the first _parents individuals into places that
+     * have already been made with grow. Different ranges may be bred on
+     * different threads at once.
+     *
+     * @param _parents The number of individuals at the start to breed from
+     * @param _from The index of the first child
+     * @param _to The index after the last child
+     * @param _random The source of random numbers
+     */
+    public void breed(int _parents, int _from, int _to, Random _random) {
+        for (int i = _from; i < _to; i++) {
+            int mother = genomes.get(this.binaryTournamentSelectIndex(_parents, _random));
+            int father = genomes.get(this.binaryTournamentSelectIndex(_parents, _random));
+            int mask = _random.nextInt(); // Each bit comes from either parent with equal chance
+            genomes.put(i, (mother & mask) | (father & ~mask));
+            fitnesses.put(i, Double.NaN);
+        }
+    }
+
+    /**
+     * Makes room for more individuals at the end, to be filled in by breed
+     *
+     * @param _count The number of individuals to add
+     */
+    public void grow(int _count) {
+        size += _count;
+    }
+
+    /**
+     * Flips each bit of each genome with a set chance. Rather than drawing a
+     * random number per bit, the gaps between flips are drawn from the
+     * geometric distribution.
+     *
+     * @param _mutRat The mutation rate
+     * @param _random The source of random numbers
+     */
+    public void mutate(double _mutRat, Random _random) {
+        this.mutate(_mutRat, 0, size, _random);
+    }
+
+    /**
+     * Mutates some of the individuals. Different ranges may be mutated on
+     * different threads at once.
+     *
+     * @param _mutRat The mutation rate
+     * @param _from The index of the first individual
+     * @param _to The index after the last individual
+     * @param _random The source of random numbers
+     */
+    public void mutate(double _mutRat, int _from, int _to, Random _random) {
+        if (_mutRat <= 0.0) {
+            return;
+        }
+
+        long bits = 32L * _to;
+        double logKeep = Math.log(1.0 - Math.min(_mutRat, 1.0));
+        long bit = 32L * _from - 1;
+
+        while (true) {
+            bit += (logKeep == Double.NEGATIVE_INFINITY)
+                    ? 1
+                    : 1 + (long) (Math.log(1.0 - _random.nextDouble()) / logKeep);
+            if (bit >= bits) {
+                break;
+            }
+
+            int i = (int) (bit >>> 5);
+            genomes.put(i, genomes.get(i) ^ (1 << (bit & 31)));
+        }
+    }
+
+    /**
+     * Replaces the worst individuals with new random ones, keeping the best,
+     * as Population.reseed does. The new individuals are moved to the start,
+     * and have no fitness until they are evaluated. The worst are found in
+     * place, without copying the fitnesses.
+     *
+     * @param _fraction The fraction of the population to replace
+     * @param _random The source of random numbers
+     * @return The number of individuals replaced, which are the first ones
+     */
+    public int reseed(double _fraction, Random _random) {
+        int replaced = Math.max(0, Math.min(size - 1, (int) (size * _fraction))); // Keep the best
+        if (replaced == 0) {
+            return 0;
+        }
+
+        // The fitness of the best individual to be replaced
+        double threshold = this.getFitnessOfRank(replaced - 1);
+
+        // Replace everything worse, then enough of those that tie
+        int ties = replaced;
+        for (int i = 0; i < size; i++) {
+            if (fitnesses.get(i) < threshold) {
+                ties--;
+            }
+        }
+        int next = 0; // Where the next new individual goes
+        for (int i = 0; i < size; i++) {
+            double f = fitnesses.get(i);
+            if (f < threshold || (f == threshold && ties-- > 0)) {
+                genomes.put(i, genomes.get(next)); // Move a kept individual out of the way
+                fitnesses.put(i, fitnesses.get(next));
+                genomes.put(next, _random.nextInt());
+                fitnesses.put(next, Double.NaN);
+                next++;
+            }
+        }
+
+        return replaced;
+    }
+
+    /**
+     * Finds the _kth smallest fitness by radix selection, a 16 bit digit at a
+     * time, so it takes four passes over the fitnesses but no copy of them
+     *
+     * @param _k The rank, from 0
+     * @return The _kth smallest fitness
+     */
+    private double getFitnessOfRank(int _k) {
+        int[] counts = new int[1 << 16];
+        long prefix = 0; // The digits found so far
+
+        for (int shift = 48; shift >= 0; shift -= 16) {
+            long mask = shift == 48 ? 0 : -1L << (shift + 16);
+            Arrays.fill(counts, 0);
+            for (int i = 0; i < size; i++) {
+                long key = sortKey(fitnesses.get(i));
+                if ((key & mask) == prefix) {
+                    counts[(int) (key >>> shift) & 0xFFFF]++;
+                }
+            }
+
+            int digit = 0;
+            while (_k >= counts[digit]) {
+                _k -= counts[digit];
+                digit++;
+            }
+            prefix |= (long) digit << shift;
+        }
+
+        return fromSortKey(prefix);
+    }
+
+    /**
+     * @param _value A value, not NaN
+     * @return A key that orders as the values do, when compared unsigned
+     */
+    private static long sortKey(double _value) {
+        long bits = Double.doubleToLongBits(_value + 0.0); // No -0.0
+        return bits < 0 ? ~bits : bits | Long.MIN_VALUE;
+    }
+
+    /**
+     * @param _key A key from sortKey
+     * @return The value it was made from
+     */
+    private static double fromSortKey(long _key) {
+        return Double.longBitsToDouble(_key < 0 ? _key & Long.MAX_VALUE : ~_key);
+    }
+
+    /**
+     * @param _genome The packed genome
+     * @param _fitness Its fitness
+     */
+    private void add(int _genome, double _fitness) {
+        genomes.put(size, _genome);
+        fitnesses.put(size, _fitness);
+        size++;
+    }
+}
@@ -5,7 +5,9 @@
  *
  * @author Rob Impey
  */
-public class Phenotype implements Comparable {
+import java.util.*;
+
+public class Phenotype implements Comparable, Individual {
     // Instance fields and class constants
     // -----------------------------------
 
@@ -13,6 +15,8 @@ public class Phenotype implements Comparable {
     private static final double MIN = -10.0;
     private static final int BITS = 16;
     private final Genotype genotype;
+    private double fitness; // The cached fitness
+    private int fitnessVersion = -1; // The version of the genotype the fitness was found for
 
     // Constructors
     // ------------
@@ -32,23 +36,43 @@ public class Phenotype implements Comparable {
         genotype = new Genotype();
     }
 
+    /**
+     * Creates a new random pair of numbers
+     *
+     * @param _random The source of random numbers
+     */
+    public Phenotype(Random _random) {
+        genotype = new Genotype(_random);
+    }
+
     // Access methods
     // --------------
     /**
      * @return The value of x as a real
      */
+    @Override
     public double getX() {
-        return MIN
-                + (genotype.getX()
-                * ((MAX - MIN) / Math.pow(2, BITS)));
+        return decode(genotype.getX());
     }
 
     /**
      * @return The value of y as a real
      */
+    @Override
     public double getY() {
+        return decode(genotype.getY());
+    }
+
+    /**
+     * Maps a decimal integer from a binary string onto a real between MIN and
+     * MAX
+     *
+     * @param _value The decimal integer
+     * @return The real
+     */
+    public static double decode(int _value) {
         return MIN
-                + (genotype.getY()
+                + (_value
                 * ((MAX - MIN) / Math.pow(2, BITS)));
     }
 
@@ -62,6 +86,16 @@ public class Phenotype implements Comparable {
                 + " f(x, y): " + this.getFitness();
     }
 
+    /**
+     * @return A copy of this phenotype, with its own genotype and the same
+     * fitness
+     */
+    public Phenotype copy() {
+        Phenotype copy = new Phenotype(new Genotype(genotype.pack()));
+        copy.setFitness(this.getFitness());
+        return copy;
+    }
+
     /**
      * @return The genetic material of this phenotype
      */
@@ -83,20 +117,60 @@ public class Phenotype implements Comparable {
         return new Phenotype(childGenotype);
     }
 
+    /**
+     * Mates this phenotype with another. The mate must be of the same type
+     *
+     * @param _mate The mate
+     * @param _random The source of random numbers
+     * @return The child
+     */
+    public Phenotype mate(Phenotype _mate, Random _random) {
+        Genotype childGenotype = genotype.cross(_mate.getGenotype(), _random);
+        return new Phenotype(childGenotype);
+    }
+
     /**
      * The fitness is the output of a complex function We want to find the
-     * maximum of this function so the larger the better.
+     * maximum of this function so the larger the better. The fitness is only
+     * worked out again when the genotype has been mutated, unless it has been
+     * set by an Evaluator.
      *
      * @return The fitness of this phenotype
      */
+    @Override
     public double getFitness() {
-        double x = this.getX();
-        double y = this.getY();
+        if (fitnessVersion != genotype.getVersion()) {
+            fitness = fitnessOf(this.getX(), this.getY());
+            fitnessVersion = genotype.getVersion();
+        }
+
+        return fitness;
+    }
+
+    /**
+     * Sets the fitness of the current genotype, for when it has been found by
+     * an Evaluator
+     *
+     * @param _fitness The fitness
+     */
+    public void setFitness(double _fitness) {
+        fitness = _fitness;
+        fitnessVersion = genotype.getVersion();
+    }
+
+    /**
+     * The complex function itself
+     *
+     * @param _x The value of x
+     * @param _y The value of y
+     * @return f(x, y)
+     */
+    public static double fitnessOf(double _x, double _y) {
         double f =
-                (Math.exp(-0.7 * (x + 2.0) * (x + 2.0))
-                * Math.exp(-0.9 * y * y))
-                + ((2.0 * Math.exp(-1.0 * (x - 5.0) * (x - 6.0)))
-                * Math.exp(-1.0 * (y - 2.0) * (y - 2.0)));
+                (Math.exp(-0.7 * (_x + 2.0) * (_x + 2.0))
+                * Math.exp(-0.9 * _y * _y))
+                + ((2.0 * Math.exp(-1.0 * (_x - 5.0) * (_x - 6.0)))
+                * Math.exp(-1.0 * (_y - 2.0) * (_y - 2.0)));
 
         return f;
     }
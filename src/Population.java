@@ -5,6 +5,7 @@
  * @author Rob Impey
  */
 import java.util.*;
+import java.util.concurrent.*;
 
 public class Population {
     // Instance variables and class constants
@@ -25,9 +26,17 @@ public class Population {
      * @param _size The size of the population
      */
     public Population(int _size) {
+        this(_size, ThreadLocalRandom.current());
+    }
+
+    /**
+     * @param _size The size of the population
+     * @param _random The source of random numbers
+     */
+    public Population(int _size, Random _random) {
         individuals = new Phenotype[_size];
         for (int i = 0; i < individuals.length; i++) {
-            individuals[i] = new Phenotype();
+            individuals[i] = new Phenotype(_random);
         }
     }
 
@@ -69,6 +78,31 @@ public class Population {
         return individuals[individuals.length - 1];
     }
 
+    /**
+     * @param _count The most individuals to return
+     * @return The best individuals with different genomes, the best first
+     */
+    public Phenotype[] getBestDistinct(int _count) {
+        Arrays.sort(individuals);
+        List<Phenotype> best = new ArrayList<Phenotype>(_count);
+        Set<Integer> genomes = new HashSet<Integer>();
+
+        for (int i = individuals.length - 1; i >= 0 && best.size() < _count; i--) {
+            if (genomes.add(individuals[i].getGenotype().pack())) {
+                best.add(individuals[i]);
+            }
+        }
+
+        return best.toArray(new Phenotype[best.size()]);
+    }
+
+    /**
+     * @return Measures of how varied the population is
+     */
+    public Diversity getDiversity() {
+        return new Diversity(this);
+    }
+
     /**
      * @return A String to represent the population
      */
@@ -79,6 +113,20 @@ public class Population {
                 + "Best individual: " + this.getBestIndividual().toString();
     }
 
+    /**
+     * @return A new Population of copies of the individuals, so that an
+     * individual selected more than once can be changed without changing the
+     * others
+     */
+    public Population copy() {
+        Phenotype[] copies = new Phenotype[individuals.length];
+        for (int i = 0; i < copies.length; i++) {
+            copies[i] = individuals[i].copy();
+        }
+
+        return new Population(copies);
+    }
+
     /**
      * Combines this Population with another to make a new Population
      *
@@ -99,6 +147,28 @@ public class Population {
         return new Population(combined);
     }
 
+    /**
+     * Asks an Evaluator for the fitnesses of all the individuals, without
+     * waiting for them
+     *
+     * @param _evaluator The Evaluator
+     */
+    public void submit(Evaluator _evaluator) {
+        this.submit(_evaluator, 0, individuals.length);
+    }
+
+    /**
+     * Asks an Evaluator for the fitnesses of some of the individuals, without
+     * waiting for them
+     *
+     * @param _evaluator The Evaluator
+     * @param _from The index of the first individual
+     * @param _to The index after the last individual
+     */
+    public void submit(Evaluator _evaluator, int _from, int _to) {
+        _evaluator.submit(individuals, _from, _to);
+    }
+
     // Evolutionary Methods
     // --------------------
     /**
@@ -108,23 +178,45 @@ public class Population {
      * @return The selected individual
      */
     public Phenotype binaryTournamentSelectIndividual() {
-        int randomIndex1 = (int) (Math.random() * individuals.length);
-        int randomIndex2 = (int) (Math.random() * individuals.length);
-        Phenotype selection;
+        return this.binaryTournamentSelectIndividual(ThreadLocalRandom.current());
+    }
+
+    /**
+     * Selects an individual using binary tournament selection That is, 2
+     * individuals are selected at random and the fitter one is returned
+     *
+     * @param _random The source of random numbers
+     * @return The selected individual
+     */
+    public Phenotype binaryTournamentSelectIndividual(Random _random) {
+        return individuals[this.binaryTournamentSelectIndex(_random)];
+    }
+
+    /**
+     * Selects an individual using binary tournament selection, giving its
+     * index rather than the individual
+     *
+     * @param _random The source of random numbers
+     * @return The index of the selected individual
+     */
+    public int binaryTournamentSelectIndex(Random _random) {
+        int randomIndex1 = (int) (_random.nextDouble() * individuals.length);
+        int randomIndex2 = (int) (_random.nextDouble() * individuals.length);
+        int selection;
 
         if (individuals[randomIndex1].compareTo(individuals[randomIndex2]) == 1) // 1 is better than 2
         {
-            selection = individuals[randomIndex1];
+            selection = randomIndex1;
         } else {
             if (individuals[randomIndex1].compareTo(individuals[randomIndex2]) == -1) // 1 is worse than 2
             {
-                selection = individuals[randomIndex2];
+                selection = randomIndex2;
             } else // They have the same fitness, so return either
             {
-                if (Math.random() < 0.5) {
-                    selection = individuals[randomIndex1];
+                if (_random.nextDouble() < 0.5) {
+                    selection = randomIndex1;
                 } else {
-                    selection = individuals[randomIndex2];
+                    selection = randomIndex2;
                 }
             }
         }
@@ -140,13 +232,95 @@ public class Population {
      * @return The new population of selected individuals
      */
     public Population binaryTournamentSelect(int _size) {
+        return this.binaryTournamentSelect(_size, ThreadLocalRandom.current());
+    }
+
+    /**
+     * Selects a new Population of Phenotypes using Tournament selection. The
+     * Population was a set size.
+     *
+     * @param _size The size of the new population
+     * @param _random The source of random numbers
+     * @return The new population of selected individuals
+     */
+    public Population binaryTournamentSelect(int _size, Random _random) {
+        if (_size < 1) {
+            _size = 1; // To avoid an abvious error
+        }
+        Phenotype[] selection = new Phenotype[_size];
+
+        for (int i = 0; i < selection.length; i++) {
+            selection[i] = this.binaryTournamentSelectIndividual(_random);
+        }
+
+        return new Population(selection);
+    }
+
+    /**
+     * Selects an individual using binary tournament selection, with the
+     * tournament decided by scores rather than fitness
+     *
+     * @param _scores The score of each individual, the larger the better
+     * @param _random The source of random numbers
+     * @return The index of the selected individual
+     */
+    public int binaryTournamentSelectIndex(double[] _scores, Random _random) {
+        int randomIndex1 = (int) (_random.nextDouble() * individuals.length);
+        int randomIndex2 = (int) (_random.nextDouble() * individuals.length);
+
+        if (_scores[randomIndex1] > _scores[randomIndex2]) {
+            return randomIndex1;
+        } else if (_scores[randomIndex1] < _scores[randomIndex2]) {
+            return randomIndex2;
+        } else if (_random.nextDouble() < 0.5) { // They have the same score, so return either
+            return randomIndex1;
+        } else {
+            return randomIndex2;
+        }
+    }
+
+    /**
+     * Selects an individual using binary tournament selection among some of
+     * the individuals, with the tournament decided by scores
+     *
+     * @param _scores The score of each individual, the larger the better
+     * @param _candidates The indices of the individuals to choose from
+     * @param _random The source of random numbers
+     * @return The index of the selected individual
+     */
+    public int binaryTournamentSelectIndex(double[] _scores, int[] _candidates, Random _random) {
+        int randomIndex1 = _candidates[_random.nextInt(_candidates.length)];
+        int randomIndex2 = _candidates[_random.nextInt(_candidates.length)];
+
+        if (_scores[randomIndex1] > _scores[randomIndex2]) {
+            return randomIndex1;
+        } else if (_scores[randomIndex1] < _scores[randomIndex2]) {
+            return randomIndex2;
+        } else if (_random.nextDouble() < 0.5) { // They have the same score, so return either
+            return randomIndex1;
+        } else {
+            return randomIndex2;
+        }
+    }
+
+    /**
+     * Selects a new Population of Phenotypes using Tournament selection, with
+     * the tournaments decided by scores rather than fitness, e.g. shared
+     * fitnesses
+     *
+     * @param _size The size of the new population
+     * @param _scores The score of each individual, the larger the better
+     * @param _random The source of random numbers
+     * @return The new population of selected individuals
+     */
+    public Population binaryTournamentSelect(int _size, double[] _scores, Random _random) {
         if (_size < 1) {
             _size = 1; // To avoid an abvious error
         }
         Phenotype[] selection = new Phenotype[_size];
 
         for (int i = 0; i < selection.length; i++) {
-            selection[i] = this.binaryTournamentSelectIndividual();
+            selection[i] = individuals[this.binaryTournamentSelectIndex(_scores, _random)];
         }
 
         return new Population(selection);
@@ -161,8 +335,21 @@ public class Population {
      * @return The new Population of selected individuals
      */
     public Population binaryTournamentSelect(double _selectionRate) {
+        return this.binaryTournamentSelect(_selectionRate, ThreadLocalRandom.current());
+    }
+
+    /**
+     * Selects a new Population of Phenotypes using Tournament selection. The
+     * selection rate is a real number between 0 and 1. If a selection rate
+     * larger than 1 is given, there will be at least one repeat
+     *
+     * @param _selectionRate The selection rate
+     * @param _random The source of random numbers
+     * @return The new Population of selected individuals
+     */
+    public Population binaryTournamentSelect(double _selectionRate, Random _random) {
         int size = (int) (individuals.length * _selectionRate);
-        return this.binaryTournamentSelect(size);
+        return this.binaryTournamentSelect(size, _random);
     }
 
     /**
@@ -171,8 +358,37 @@ public class Population {
      * @param _mutRat The mutation rate
      */
     public void mutate(double _mutRat) {
+        this.mutate(_mutRat, ThreadLocalRandom.current());
+    }
+
+    /**
+     * Mutates all the individuals a set amount
+     *
+     * @param _mutRat The mutation rate
+     * @param _random The source of random numbers
+     */
+    public void mutate(double _mutRat, Random _random) {
         for (int i = 0; i < individuals.length; i++) {
-            individuals[i].getGenotype().mutate(_mutRat);
+            individuals[i].getGenotype().mutate(_mutRat, _random);
+        }
+    }
+
+    /**
+     * Replaces the worst individuals with new random ones. The population is
+     * sorted, so the new individuals are at the start.
+     *
+     * @param _fraction The fraction of the population to replace
+     * @param _random The source of random numbers
+     * @return The number of individuals replaced
+     */
+    public int reseed(double _fraction, Random _random) {
+        Arrays.sort(individuals);
+        int replaced = Math.min(individuals.length - 1, (int) (individuals.length * _fraction)); // Keep the best
+
+        for (int i = 0; i < replaced; i++) {
+            individuals[i] = new Phenotype(_random);
         }
+
+        return Math.max(0, replaced);
     }
 }
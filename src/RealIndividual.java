@@ -0,0 +1,61 @@
+/**
+ * An individual with real coordinates, as kept by a RealPopulation
+ *
+ * @author Rob Impey
+ */
+public final class RealIndividual implements Individual {
+    // Instance fields and class constants
+    // -----------------------------------
+
+    private final double x, y;
+    private final double fitness;
+
+    // Constructors
+    // ------------
+    /**
+     * @param _x The value of x
+     * @param _y The value of y
+     * @param _fitness The fitness at (x, y)
+     */
+    public RealIndividual(double _x, double _y, double _fitness) {
+        x = _x;
+        y = _y;
+        fitness = _fitness;
+    }
+
+    // Access methods
+    // --------------
+    /**
+     * @return The value of x
+     */
+    @Override
+    public double getX() {
+        return x;
+    }
+
+    /**
+     * @return The value of y
+     */
+    @Override
+    public double getY() {
+        return y;
+    }
+
+    /**
+     * @return The fitness
+     */
+    @Override
+    public double getFitness() {
+        return fitness;
+    }
+
+    /**
+     * @return A string to represent this individual
+     */
+    @Override
+    public String toString() {
+        return "x: " + x
+                + " y: " + y
+                + " f(x, y): " + fitness;
+    }
+}
@@ -0,0 +1,215 @@
+/**
+ * A population of real coded individuals. The coordinates and fitnesses are
+ * kept in primitive arrays, so there is nothing to decode and no objects per
+ * individual, and the precision is not limited to 16 bits.
+ *
+ * @author Rob Impey
+ */
+import java.util.*;
+
+public class RealPopulation {
+    // Instance fields and class constants
+    // -----------------------------------
+
+    private static final double MAX = 10.0;
+    private static final double MIN = -10.0;
+    private final double[] x, y, fitnesses;
+    private int size;
+
+    // Constructors
+    // ------------
+    /**
+     * Creates an empty population
+     *
+     * @param _capacity The most individuals the population can hold
+     */
+    public RealPopulation(int _capacity) {
+        x = new double[_capacity];
+        y = new double[_capacity];
+        fitnesses = new double[_capacity];
+    }
+
+    // Access methods
+    // --------------
+    /**
+     * @return The size of the population
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return The mean fitness of the population
+     */
+    public double getMeanFitness() {
+        double total = 0.0;
+
+        for (int i = 0; i < size; i++) {
+            total += fitnesses[i];
+        }
+
+        return total / size;
+    }
+
+    /**
+     * @return The index of the fittest individual
+     */
+    public int getBestIndex() {
+        int best = 0;
+        for (int i = 1; i < size; i++) {
+            if (fitnesses[best] < fitnesses[i]) {
+                best = i;
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * @param _i The index of the requested individual
+     * @return A copy of the _ith individual
+     */
+    public RealIndividual getIndividual(int _i) {
+        return new RealIndividual(x[_i], y[_i], fitnesses[_i]);
+    }
+
+    // Evolutionary Methods
+    // --------------------
+    /**
+     * Empties the population, keeping its storage
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Fills the population with random individuals
+     *
+     * @param _size The size of the population
+     * @param _random The source of random numbers
+     */
+    public void randomise(int _size, Random _random) {
+        size = _size;
+        for (int i = 0; i < size; i++) {
+            x[i] = MIN + (MAX - MIN) * _random.nextDouble();
+            y[i] = MIN + (MAX - MIN) * _random.nextDouble();
+        }
+    }
+
+    /**
+     * Works out the fitness of every individual
+     */
+    public void evaluate() {
+        for (int i = 0; i < size; i++) {
+            fitnesses[i] = Phenotype.fitnessOf(x[i], y[i]);
+        }
+    }
+
+    /**
+     * Selects an individual using binary tournament selection among the first
+     * _pool individuals
+     *
+     * @param _pool The number of individuals to choose from
+     * @param _random The source of random numbers
+     * @return The index of the selected individual
+     */
+    public int binaryTournamentSelectIndex(int _pool, Random _random) {
+        int i1 = _random.nextInt(_pool);
+        int i2 = _random.nextInt(_pool);
+
+        if (fitnesses[i1] > fitnesses[i2]) {
+            return i1;
+        } else if (fitnesses[i1] < fitnesses[i2]) {
+            return i2;
+        } else {
+            return _random.nextBoolean() ? i1 : i2; // They have the same fitness, so return either
+        }
+    }
+
+    /**
+     * Adds individuals chosen from this population by tournament to another
+     *
+     * @param _other The population to add to, which must not be this one
+     * @param _count The number to select
+     * @param _random The source of random numbers
+     */
+    public void binaryTournamentSelectInto(RealPopulation _other, int _count, Random _random) {
+        for (int i = 0; i < _count; i++) {
+            int selected = this.binaryTournamentSelectIndex(size, _random);
+            _other.add(x[selected], y[selected], fitnesses[selected]);
+        }
+    }
+
+    /**
+     * Adds children bred from the first _parents individuals using blend
+     * cross over (BLX-alpha): each coordinate of a child is drawn uniformly
+     * from the parents' interval stretched by alpha times its length at each
+     * end. The children have no fitness until evaluate is called.
+     *
+     * @param _parents The number of individuals at the start to breed from
+     * @param _children The number of children to add
+     * @param _alpha How far beyond its parents a child may go
+     * @param _random The source of random numbers
+     */
+    public void breed(int _parents, int _children, double _alpha, Random _random) {
+        for (int i = 0; i < _children; i++) {
+            int mother = this.binaryTournamentSelectIndex(_parents, _random);
+            int father = this.binaryTournamentSelectIndex(_parents, _random);
+            this.add(blend(x[mother], x[father], _alpha, _random),
+                    blend(y[mother], y[father], _alpha, _random),
+                    Double.NaN);
+        }
+    }
+
+    /**
+     * Adds Gaussian noise to each coordinate with a set chance, keeping the
+     * coordinates within bounds
+     *
+     * @param _mutRat The chance of each coordinate being mutated
+     * @param _sigma The standard deviation of the noise
+     * @param _random The source of random numbers
+     */
+    public void mutate(double _mutRat, double _sigma, Random _random) {
+        for (int i = 0; i < size; i++) {
+            if (_random.nextDouble() < _mutRat) {
+                x[i] = clamp(x[i] + _sigma * _random.nextGaussian());
+            }
+            if (_random.nextDouble() < _mutRat) {
+                y[i] = clamp(y[i] + _sigma * _random.nextGaussian());
+            }
+        }
+    }
+
+    /**
+     * @param _a One parent's coordinate
+     * @param _b The other parent's coordinate
+     * @param _alpha How far beyond the parents to go
+     * @param _random The source of random numbers
+     * @return The child's coordinate
+     */
+    private static double blend(double _a, double _b, double _alpha, Random _random) {
+        double low = Math.min(_a, _b);
+        double range = Math.abs(_a - _b);
+        return clamp(low - _alpha * range + (1.0 + 2.0 * _alpha) * range * _random.nextDouble());
+    }
+
+    /**
+     * @param _v A coordinate
+     * @return The coordinate moved within MIN and MAX
+     */
+    private static double clamp(double _v) {
+        return Math.max(MIN, Math.min(MAX, _v));
+    }
+
+    /**
+     * @param _x The value of x
+     * @param _y The value of y
+     * @param _fitness Its fitness
+     */
+    private void add(double _x, double _y, double _fitness) {
+        x[size] = _x;
+        y[size] = _y;
+        fitnesses[size] = _fitness;
+        size++;
+    }
+}
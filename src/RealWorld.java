@@ -0,0 +1,133 @@
+/**
+ * A World whose individuals have real coordinates rather than binary strings.
+ * The loop of generations and the empirical data are the same as in World,
+ * so the two encodings can be compared directly. Cross over is BLX-alpha and
+ * mutation adds Gaussian noise.
+ *
+ * @author Rob Impey
+ */
+import java.util.*;
+
+public final class RealWorld extends Optimiser {
+    // Instance fields and class constants
+    // -----------------------------------
+
+    private static final double ALPHA = 0.5; // How far beyond its parents a child may go
+    private static final double SIGMA = 0.25; // The standard deviation of a mutation
+    private final int parentsPopulationSize, childrenPopulationSize;
+    private final double selectionRate, mutationRate;
+
+    // The constructors
+    // ----------------
+    /**
+     * @param _parentsPopulationSize The size of the parent population
+     * @param _childrenPopulationSize The size of the children population
+     * @param _generations The number of generations to evolve the populations
+     * for
+     * @param _selectionRate The selection rate as a percentage
+     * @param _mutationRate The chance of each coordinate being mutated
+     */
+    public RealWorld(int _parentsPopulationSize,
+            int _childrenPopulationSize,
+            int _generations,
+            double _selectionRate,
+            double _mutationRate) {
+        super(_generations);
+        parentsPopulationSize = _parentsPopulationSize;
+        childrenPopulationSize = _childrenPopulationSize;
+        selectionRate = _selectionRate;
+        mutationRate = _mutationRate;
+        this.evolve();
+    }
+
+    // Access methods
+    // --------------
+    /**
+     * @return The size of the population of parents
+     */
+    public int getParentsPopulationSize() {
+        return parentsPopulationSize;
+    }
+
+    /**
+     * @return The size of the population of children
+     */
+    public int getChildrenPopulationSize() {
+        return childrenPopulationSize;
+    }
+
+    /**
+     * @return The selection rate
+     */
+    public double getSelectionRate() {
+        return selectionRate;
+    }
+
+    /**
+     * @return The mutation rate
+     */
+    public double getMutationRate() {
+        return mutationRate;
+    }
+
+    /**
+     * @return A String to represent the World
+     */
+    @Override
+    public String toString() {
+        return "Number of parents: " + parentsPopulationSize + " \n"
+                + "Number of children: " + childrenPopulationSize + " \n"
+                + "Number of generations: " + this.getGenerations() + " \n"
+                + "Selection rate: " + selectionRate + " \n"
+                + "Mutation rate: " + mutationRate;
+    }
+
+    // Methods for empirical data
+    // --------------------------
+    /**
+     * @param _generation The generation of the requested best individual
+     * @return The best individual in the _generationth generation
+     */
+    @Override
+    public RealIndividual getBestIndividualInGeneration(int _generation) {
+        return (RealIndividual) super.getBestIndividualInGeneration(_generation);
+    }
+
+    // Methods for evolution
+    // ---------------------
+    /**
+     * Performs evolution, with the same steps as World
+     */
+    @Override
+    public void evolve() {
+        int generations = this.getGenerations();
+        Random random = new Random();
+        int selectedSize = Math.max(1, (int) (parentsPopulationSize * selectionRate));
+        RealPopulation parents = new RealPopulation(parentsPopulationSize);
+        RealPopulation parentsAndChildren = new RealPopulation(selectedSize + childrenPopulationSize);
+
+        parents.randomise(parentsPopulationSize, random); // Set up the initial population
+        parents.evaluate();
+        long evaluations = parentsPopulationSize;
+
+        for (int gen = 0; gen < generations; gen++) // The loop of generations
+        {
+            // Collect data on the population
+            this.record(gen, parents.getMeanFitness(), parents.getIndividual(parents.getBestIndex()), evaluations);
+
+            // Select the best parents, breed the children after them and mutate the lot
+            parentsAndChildren.clear();
+            parents.binaryTournamentSelectInto(parentsAndChildren, selectedSize, random);
+            parentsAndChildren.breed(selectedSize, childrenPopulationSize, ALPHA, random);
+            parentsAndChildren.mutate(mutationRate, SIGMA, random);
+            parentsAndChildren.evaluate();
+            evaluations += parentsAndChildren.getSize();
+
+            // Form the population for the next generation
+            parents.clear();
+            parentsAndChildren.binaryTournamentSelectInto(parents, parentsPopulationSize, random);
+        }
+        // Collect data on the final population
+        this.record(generations, parents.getMeanFitness(), parents.getIndividual(parents.getBestIndex()), evaluations);
+    }
+}
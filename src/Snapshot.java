@@ -0,0 +1,100 @@
+/**
+ * The state of a World's evolution at the end of a generation. Snapshots never
+ * change, so other threads can read them while the World carries on evolving.
+ *
+ * @author Rob Impey
+ */
+public final class Snapshot {
+    // Instance fields and class constants
+    // -----------------------------------
+
+    private final int generation;
+    private final Phenotype bestIndividual; // A copy, which neither evolution nor readers can mutate
+    private final double meanFitness;
+    private final long evaluations;
+    private final long elapsed; // In milliseconds
+    private final boolean finished;
+
+    // Constructors
+    // ------------
+    /**
+     * @param _generation The generation
+     * @param _bestIndividual The best individual in the generation, which is
+     * copied
+     * @param _meanFitness The mean fitness of the generation
+     * @param _evaluations The number of fitness evaluations so far
+     * @param _elapsed The time since evolution started in milliseconds
+     * @param _finished Whether evolution has finished
+     */
+    public Snapshot(int _generation,
+            Phenotype _bestIndividual,
+            double _meanFitness,
+            long _evaluations,
+            long _elapsed,
+            boolean _finished) {
+        generation = _generation;
+        bestIndividual = _bestIndividual.copy();
+        meanFitness = _meanFitness;
+        evaluations = _evaluations;
+        elapsed = _elapsed;
+        finished = _finished;
+    }
+
+    // Access methods
+    // --------------
+    /**
+     * @return The generation
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @return A copy of the best individual in the generation, so that
+     * changing it does not change the snapshot
+     */
+    public Phenotype getBestIndividual() {
+        return bestIndividual.copy();
+    }
+
+    /**
+     * @return The mean fitness of the generation
+     */
+    public double getMeanFitness() {
+        return meanFitness;
+    }
+
+    /**
+     * @return The number of fitness evaluations so far
+     */
+    public long getEvaluations() {
+        return evaluations;
+    }
+
+    /**
+     * @return The time since evolution started in milliseconds
+     */
+    public long getElapsed() {
+        return elapsed;
+    }
+
+    /**
+     * @return Whether evolution has finished, so no more snapshots will come
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * @return A String to represent the snapshot
+     */
+    @Override
+    public String toString() {
+        return "Generation: " + generation + " \n"
+                + "Mean fitness: " + meanFitness + " \n"
+                + "Best individual: " + bestIndividual + " \n"
+                + "Evaluations: " + evaluations + " \n"
+                + "Elapsed (ms): " + elapsed + " \n"
+                + "Finished: " + finished;
+    }
+}
@@ -0,0 +1,109 @@
+/**
+ * A uniform grid over the square of Phenotype coordinates, for finding the
+ * points near a point without looking at every point. The points are sorted
+ * into their cells with a counting sort. There are never many more cells than
+ * points, so building the grid takes time in proportion to the number of
+ * points whatever the cell size.
+ *
+ * @author Rob Impey
+ */
+public class SpatialHash {
+    // Instance fields and class constants
+    // -----------------------------------
+
+    private static final double MIN = -10.0;
+    private static final double MAX = 10.0;
+    private static final int MAX_SIDE = 1024; // The most cells along each side
+    private final int side; // The number of cells along each side
+    private final double cellSize;
+    private final int[] cellStarts; // Where each cell's points start in order, with an extra entry at the end
+    private final int[] order; // The indices of the points, sorted by cell
+
+    // Constructors
+    // ------------
+    /**
+     * Sorts points into cells. The cells are at least _cellSize across, so
+     * every point within _cellSize of a point is in its cell or a neighbouring
+     * one. With few points the cells are made wider, so that there are no
+     * more than about as many cells as points.
+     *
+     * @param _x The x coordinates of the points
+     * @param _y The y coordinates of the points
+     * @param _cellSize The smallest width of a cell
+     */
+    public SpatialHash(double[] _x, double[] _y, double _cellSize) {
+        int bySize = (int) Math.min(MAX_SIDE, (MAX - MIN) / _cellSize);
+        int byPoints = (int) Math.ceil(Math.sqrt(_x.length));
+        side = Math.max(1, Math.min(bySize, byPoints));
+        cellSize = (MAX - MIN) / side;
+        cellStarts = new int[side * side + 1];
+        order = new int[_x.length];
+
+        // Count the points in each cell, then turn the counts into starts
+        int[] cells = new int[_x.length];
+        for (int i = 0; i < _x.length; i++) {
+            cells[i] = this.cellY(_y[i]) * side + this.cellX(_x[i]);
+            cellStarts[cells[i] + 1]++;
+        }
+        for (int c = 0; c < side * side; c++) {
+            cellStarts[c + 1] += cellStarts[c];
+        }
+
+        int[] next = new int[side * side];
+        System.arraycopy(cellStarts, 0, next, 0, next.length);
+        for (int i = 0; i < _x.length; i++) {
+            order[next[cells[i]]++] = i;
+        }
+    }
+
+    // Access methods
+    // --------------
+    /**
+     * @return The number of cells along each side
+     */
+    public int getSide() {
+        return side;
+    }
+
+    /**
+     * @param _x An x coordinate
+     * @return The column of cells it falls in
+     */
+    public int cellX(double _x) {
+        return Math.max(0, Math.min(side - 1, (int) ((_x - MIN) / cellSize)));
+    }
+
+    /**
+     * @param _y A y coordinate
+     * @return The row of cells it falls in
+     */
+    public int cellY(double _y) {
+        return Math.max(0, Math.min(side - 1, (int) ((_y - MIN) / cellSize)));
+    }
+
+    /**
+     * @param _cellX The column of the cell
+     * @param _cellY The row of the cell
+     * @return The position in the order of the cell's first point
+     */
+    public int getStart(int _cellX, int _cellY) {
+        return cellStarts[_cellY * side + _cellX];
+    }
+
+    /**
+     * @param _cellX The column of the cell
+     * @param _cellY The row of the cell
+     * @return The position in the order after the cell's last point
+     */
+    public int getEnd(int _cellX, int _cellY) {
+        return cellStarts[_cellY * side + _cellX + 1];
+    }
+
+    /**
+     * @param _k A position in the order
+     * @return The index of the point at that position
+     */
+    public int getIndex(int _k) {
+        return order[_k];
+    }
+}
@@ -4,15 +4,42 @@
  *
  * @author Rob Impey
  */
-public final class World {
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+public final class World extends Optimiser {
     // Instance fields and class constants
     // -----------------------------------
 
     private final int parentsPopulationSize, childrenPopulationSize;
-    private final int generations;
     private final double selectionRate, mutationRate;
-    private final double[] meanFitnesses; // To store the mean fitness of each generation
-    private final Phenotype[] bestIndividuals; // To store the best individual from each generation
+    private final Evaluator evaluator; // Null if the Phenotypes evaluate themselves
+    private static final int CHUNK_SIZE = 64; // Children bred at a time, by one thread
+    private final Diversity[] diversities; // To store the diversity of each generation
+    private double collapseThreshold; // The mean Hamming distance below which the population has collapsed
+    private CollapseAction collapseAction = CollapseAction.NONE;
+    private static final double MUTATION_BOOST = 2.0; // How much a collapse raises the mutation rate by
+    private static final double MAX_MUTATION_RATE = 0.5;
+    private static final double MIN_RAISED_MUTATION_RATE = 1.0 / 32; // About one bit of the 32 in a genome
+    private static final double RESEED_FRACTION = 0.5; // How much of a collapsed population is replaced
+    private boolean offHeap; // Whether to keep the populations in PackedPopulations
+    private File storageDirectory; // Where to map off heap populations, or null for direct buffers
+    private long seed;
+    private boolean seeded; // Whether to use the seed, or a different random sequence every time
+    private static final int DIVERSITY_SAMPLE = 65536; // The most off heap individuals to measure diversity on
+    private int breedingThreads = 1;
+    private long timeBudget; // In milliseconds, or 0 for no limit
+    private long evaluationBudget; // Or 0 for no limit
+    private long evaluations; // Fitness evaluations so far
+    private long startTime; // When evolve started, from System.currentTimeMillis
+    private volatile boolean cancelled;
+    private volatile Snapshot snapshot; // The latest state of evolution, for other threads to read
+    private FitnessSharing sharing; // Null if tournaments are decided by each individual's own fitness
+    private int localSearchElites; // How many of the best parents to climb each generation, or 0 for none
+    private int localSearchSteps; // The most flips to try for each
+    private long localSearchEvaluations; // Fitness evaluations made by local search so far
+    private Population population; // The latest parents, or null if they are off heap
 
     // The constructors
     // ----------------
@@ -29,14 +56,41 @@ public final class World {
             int _generations,
             double _selectionRate,
             double _mutationRate) {
+        this(_parentsPopulationSize,
+                _childrenPopulationSize,
+                _generations,
+                _selectionRate,
+                _mutationRate,
+                null);
+        this.evolve();
+    }
+
+    /**
+     * Sets up a world whose fitnesses are found by an Evaluator. Unlike the
+     * other constructor, this does not evolve the populations; evolve must be
+     * called, after which the Evaluator may be shut down.
+     *
+     * @param _parentsPopulationSize The size of the parent population
+     * @param _childrenPopulationSize The size of the children population
+     * @param _generations The number of generations to evolve the populations
+     * for
+     * @param _selectionRate The selection rate as a percentage
+     * @param _mutationRate The mutation rate
+     * @param _evaluator The Evaluator, or null for the Phenotypes' own fitness
+     */
+    public World(int _parentsPopulationSize,
+            int _childrenPopulationSize,
+            int _generations,
+            double _selectionRate,
+            double _mutationRate,
+            Evaluator _evaluator) {
+        super(_generations);
         parentsPopulationSize = _parentsPopulationSize;
         childrenPopulationSize = _childrenPopulationSize;
-        generations = _generations;
         selectionRate = _selectionRate;
         mutationRate = _mutationRate;
-        meanFitnesses = new double[generations + 1]; // Fence post issues
-        bestIndividuals = new Phenotype[generations + 1]; // We want data both before and after evolution
-        this.evolve();
+        diversities = new Diversity[_generations + 1]; // We want data both before and after evolution
+        evaluator = _evaluator;
     }
 
     // Access methods
@@ -55,13 +109,6 @@ public final class World {
         return childrenPopulationSize;
     }
 
-    /**
-     * @return The number of generations to evolve for
-     */
-    public int getGenerations() {
-        return generations;
-    }
-
     /**
      * @return The selection rate
      */
@@ -76,6 +123,147 @@ public final class World {
         return mutationRate;
     }
 
+    /**
+     * Sets what to do when the population has collapsed. This must be called
+     * before evolve.
+     *
+     * @param _threshold The mean Hamming distance (in bits, out of 32) below
+     * which the population counts as collapsed
+     * @param _action What to do
+     */
+    public void setCollapseResponse(double _threshold, CollapseAction _action) {
+        collapseThreshold = _threshold;
+        collapseAction = _action;
+    }
+
+    /**
+     * Makes evolution repeatable: the same seed and settings give the same
+     * results. This must be called before evolve.
+     *
+     * @param _seed The seed for the random numbers
+     */
+    public void setSeed(long _seed) {
+        seed = _seed;
+        seeded = true;
+    }
+
+    /**
+     * Sets the number of threads to breed and mutate children with. The
+     * results for a seed are the same whatever the number of threads. This
+     * must be called before evolve.
+     *
+     * @param _threads The number of threads
+     */
+    public void setBreedingThreads(int _threads) {
+        breedingThreads = Math.max(1, _threads);
+    }
+
+    /**
+     * Limits how long evolve may run. Evolution stops at the end of the first
+     * generation past the limit. This must be called before evolve.
+     *
+     * @param _millis The most time to take in milliseconds, or 0 for no limit
+     */
+    public void setTimeBudget(long _millis) {
+        timeBudget = _millis;
+    }
+
+    /**
+     * Limits how many fitness evaluations evolve may make. Evolution stops at
+     * the end of the first generation past the limit. This must be called
+     * before evolve.
+     *
+     * @param _evaluations The most evaluations, or 0 for no limit
+     */
+    public void setEvaluationBudget(long _evaluations) {
+        evaluationBudget = _evaluations;
+    }
+
+    /**
+     * Asks evolve to stop at the end of the current generation. This may be
+     * called from any thread. If evolve is not running, the next call to it
+     * stops as soon as it has recorded the starting population. Either way,
+     * the cancel is cleared when that run of evolve returns, so it does not
+     * stop the one after.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * The latest state of evolution. This may be called from any thread while
+     * evolve is running, and does not hold evolution up.
+     *
+     * @return The latest snapshot, or null if evolve has not started
+     */
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * @return The number of fitness evaluations made by evolve, not counting
+     * those made by local search
+     */
+    public long getEvaluations() {
+        return evaluations;
+    }
+
+    /**
+     * @return The number of fitness evaluations made by local search
+     */
+    public long getLocalSearchEvaluations() {
+        return localSearchEvaluations;
+    }
+
+    /**
+     * Decides every tournament by shared fitness, and chooses each mate from
+     * within the radius of the other parent, so that the population keeps
+     * individuals on both peaks rather than crowding onto the higher one.
+     * Off heap populations cannot share fitness. This
+     * must be called before evolve.
+     *
+     * @param _radius How close individuals must be to share fitness, or 0 to
+     * decide tournaments by each individual's own fitness
+     */
+    public void setFitnessSharing(double _radius) {
+        sharing = _radius > 0.0 ? new FitnessSharing(_radius, 1.0) : null;
+    }
+
+    /**
+     * Makes this a memetic algorithm: each generation, before selection, the
+     * best few parents with different genomes are improved by bit-flip hill
+     * climbing (see LocalSearch), on the breeding threads. The evaluations
+     * made by climbing are counted apart from the rest (see
+     * getLocalSearchEvaluations), but the per generation evaluations, the
+     * snapshots and the evaluation budget include them. Local search works
+     * out the complex function itself, so there must be no Evaluator, and
+     * off heap populations cannot use it. This must be called before evolve.
+     *
+     * @param _elites How many of the best parents to climb, or 0 for no local
+     * search
+     * @param _steps The most flips to try for each, each costing a fitness
+     * evaluation
+     */
+    public void setLocalSearch(int _elites, int _steps) {
+        localSearchElites = Math.max(0, _elites);
+        localSearchSteps = Math.max(0, _steps);
+    }
+
+    /**
+     * Keeps the populations off the heap in PackedPopulations, so that very
+     * large populations do not burden the garbage collector. Off heap
+     * populations use the Phenotypes' own fitness, so there must be no
+     * Evaluator. This must be called before evolve.
+     *
+     * @param _offHeap Whether to keep the populations off the heap
+     * @param _directory A directory for memory mapped files to hold the
+     * populations, or null to use direct buffers
+     */
+    public void setOffHeapStorage(boolean _offHeap, File _directory) {
+        offHeap = _offHeap;
+        storageDirectory = _directory;
+    }
+
     /**
      * Returns a description of the world Empirical data should be collated
      * elsewhere
@@ -86,151 +274,468 @@ public final class World {
     public String toString() {
         return "Number of parents: " + parentsPopulationSize + " \n"
                 + "Number of children: " + childrenPopulationSize + " \n"
-                + "Number of generations: " + generations + " \n"
+                + "Number of generations: " + this.getGenerations() + " \n"
                 + "Selection rate: " + selectionRate + " \n"
                 + "Mutation rate: " + mutationRate;
     }
 
     // Methods for empirical data
     // --------------------------
-    /**
-     * @param _generation The generation of the requested mean fitness
-     * @return The mean fitness of the _generationth generation
-     */
-    public double getMeanFitnessOfGeneration(int _generation) {
-        return meanFitnesses[_generation];
-    }
-
     /**
      * @param _generation The generation of the requested best individual
      * @return The best individual in the _generationth generation
      */
+    @Override
     public Phenotype getBestIndividualInGeneration(int _generation) {
-        return bestIndividuals[_generation];
+        return (Phenotype) super.getBestIndividualInGeneration(_generation);
     }
 
     /**
-     * Instead of a method to return the best mean fitness, the generation with
-     * the best mean fitness should be found first. Then the mean fitness of
-     * that generation should be found with
-     * <code>
-     *  int gWBMF = world.getGenerationWithBestMeanFitness();
-     * <br>
-     * double bMF = world.getMeanFitnessOfGeneration(gWBMF);
-     * </code>
+     * This should only be called once evolve has returned, unlike getSnapshot
      *
-     * @return The generation with the best mean fitness
+     * @return Copies of the parents in the last generation evolved, or null
+     * if evolve has not run or kept its populations off heap
      */
-    public int getGenerationWithBestMeanFitness() {
+    public Phenotype[] getPopulation() {
+        Population latest = population;
+        if (latest == null) {
+            return null;
+        }
 
-        int best = 0;
-        for (int i = 1; i < meanFitnesses.length; i++) {
-            if (meanFitnesses[best] < meanFitnesses[i]) {
-                best = i;
-            }
+        Phenotype[] copies = new Phenotype[latest.getSize()];
+        for (int i = 0; i < copies.length; i++) {
+            copies[i] = latest.getPhenotype(i).copy();
         }
+        return copies;
+    }
 
-        return best;
+    /**
+     * @param _generation The generation of the requested diversity
+     * @return The diversity of the _generationth generation
+     */
+    public Diversity getDiversityOfGeneration(int _generation) {
+        return diversities[_generation];
     }
 
+    // Methods for evolution 
+    // ---------------------
     /**
-     * @return The generation in which the best Phenotype was produced
+     * Performs evolution
      */
-    public int getGenerationWithBestIndividual() {
-        int best = 0;
-        for (int i = 1; i < bestIndividuals.length; i++) {
-            if (bestIndividuals[best].getFitness() < bestIndividuals[i].getFitness()) {
-                best = i;
+    @Override
+    public void evolve() {
+        ExecutorService pool = breedingThreads > 1 ? Executors.newFixedThreadPool(breedingThreads) : null;
+        evaluations = 0;
+        localSearchEvaluations = 0;
+        population = null;
+        startTime = System.currentTimeMillis();
+        try {
+            if (offHeap) {
+                this.evolveOffHeap(pool);
+            } else {
+                this.evolveOnHeap(pool);
+            }
+            this.publish(this.getGenerationsCompleted(), true);
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
             }
+            cancelled = false; // Only once the run is over, so an earlier cancel still stops it
         }
-
-        return best;
     }
 
     /**
-     * Tells the user the generation in which some milestone in mean fitness
-     * improvement was reached. If the milestone was not reached, -1 is
-     * returned.
+     * Performs evolution with populations of Phenotypes
      *
-     * @param _milestone The milestone
-     * @return The generation in which a mean fitness of _milestone was reached
+     * @param _pool The threads to breed with, or null to breed on this thread
      */
-    public int getGenerationsTakenToReachMeanFitnessOf(double _milestone) {
-        int generationOfMilestone = -1;
-        int currentGeneration = 0;
+    private void evolveOnHeap(ExecutorService _pool) {
+        int generations = this.getGenerations();
+        if (evaluator != null && localSearchElites > 0) {
+            throw new IllegalStateException("Local search cannot use an Evaluator");
+        }
 
-        while ((generationOfMilestone == -1) && (currentGeneration < meanFitnesses.length)) {
-            if (meanFitnesses[currentGeneration] >= _milestone) {
-                generationOfMilestone = currentGeneration;
-            }
+        Random random = this.makeRandom();
+        LocalSearch localSearch = localSearchElites > 0 && localSearchSteps > 0
+                ? new LocalSearch(localSearchElites, localSearchSteps) : null;
+        Population parents, selectedParents, children, parentsAndChildren;
+        parents = new Population(parentsPopulationSize, random); // Set up the initial population
+        final Phenotype[] kids = new Phenotype[childrenPopulationSize];
+        double currentMutationRate = mutationRate;
 
-            currentGeneration++;
+        if (evaluator != null) {
+            parents.submit(evaluator);
+            evaluator.await();
         }
+        evaluations += parents.getSize();
 
-        return generationOfMilestone;
-    }
+        this.setGenerationsCompleted(generations);
+        for (int gen = 0; gen < generations; gen++) // The loop of generations
+        {
+            // Collect data on the population
+            this.record(gen, parents.getMeanFitness(), parents.getBestIndividual().copy(), this.getTotalEvaluations());
+            diversities[gen] = parents.getDiversity();
+            population = parents;
 
-    /**
-     * Tells the user the generation in which some milestone in best individual
-     * improvement was reached. If the milestone was not reached, -1 is
-     * returned.
-     *
-     * @param _milestone The milestone
-     * @return The first generation in which an individual with a fitness of
-     * _milestone or greater
-     */
-    public int getGenerationsTakenToReachBestIndividualFitnessOf(double _milestone) {
-        int generationOfMilestone = -1;
-        int currentGeneration = 0;
+            // Tell anyone watching, and stop if out of time or evaluations
+            this.publish(gen, false);
+            if (this.isOutOfBudget()) {
+                this.setGenerationsCompleted(gen);
+                return;
+            }
 
-        while ((generationOfMilestone == -1) && (currentGeneration < bestIndividuals.length)) {
-            if (bestIndividuals[currentGeneration].getFitness() >= _milestone) {
-                generationOfMilestone = currentGeneration;
+            // Deal with a population that has converged on one point
+            if (diversities[gen].getMeanHammingDistance() < collapseThreshold) {
+                if (collapseAction == CollapseAction.STOP) {
+                    this.setGenerationsCompleted(gen);
+                    return;
+                } else if (collapseAction == CollapseAction.RAISE_MUTATION) {
+                    currentMutationRate = raise(currentMutationRate);
+                } else if (collapseAction == CollapseAction.RESEED) {
+                    int reseeded = parents.reseed(RESEED_FRACTION, random);
+                    if (evaluator != null) {
+                        parents.submit(evaluator, 0, reseeded);
+                        evaluator.await();
+                    }
+                    evaluations += reseeded;
+                }
+            } else {
+                currentMutationRate = mutationRate;
             }
 
-            currentGeneration++;
-        }
+            // Improve the best parents by hill climbing
+            if (localSearch != null) {
+                localSearchEvaluations += localSearch.improve(parents, _pool);
+            }
+
+            // Select the best parents. Their fitnesses are all known by now,
+            // so the breeding threads only read them. With sharing, every
+            // tournament is decided by shared fitness, each mate is chosen
+            // from near the other parent, and the selected parents are
+            // copies, or a parent selected twice would be mutated as one and
+            // its copies would go on crowding each other.
+            final Population breeders;
+            final double[] breederScores;
+            final int[][] breederNeighbours;
+            if (sharing == null) {
+                breeders = parents.binaryTournamentSelect(selectionRate, random);
+                breederScores = null;
+                breederNeighbours = null;
+            } else {
+                breeders = parents.binaryTournamentSelect((int) (parents.getSize() * selectionRate),
+                        sharing.share(parents), random).copy();
+                breederScores = sharing.share(breeders);
+                breederNeighbours = sharing.neighbours(breeders);
+            }
+            selectedParents = breeders;
+
+            // Breed and mutate the children in chunks, each with its own
+            // random numbers, so the children are the same however many
+            // threads there are. Each child is new, so mutating it now is the
+            // same as mutating it after combining. An evaluator works on each
+            // chunk while the next is being bred.
+            final double childMutationRate = currentMutationRate;
+            this.inChunks(kids.length, random, _pool, new ChunkTask() {
+                @Override
+                void run(int _from, int _to, Random _random) {
+                    // Sample all the pairs of parents for the chunk first
+                    int[] pairs = new int[2 * (_to - _from)];
+                    for (int i = 0; i < pairs.length; i++) {
+                        if (breederScores == null) {
+                            pairs[i] = breeders.binaryTournamentSelectIndex(_random);
+                        } else if (i % 2 == 0) {
+                            pairs[i] = breeders.binaryTournamentSelectIndex(breederScores, _random);
+                        } else { // A mate from the same niche
+                            pairs[i] = breeders.binaryTournamentSelectIndex(breederScores,
+                                    breederNeighbours[pairs[i - 1]], _random);
+                        }
+                    }
+
+                    for (int i = _from; i < _to; i++) {
+                        int pair = 2 * (i - _from);
+                        kids[i] = breeders.getPhenotype(pairs[pair])
+                                .mate(breeders.getPhenotype(pairs[pair + 1]), _random); // Mate 'em
+                        kids[i].getGenotype().mutate(childMutationRate, _random);
+                        if (evaluator == null) {
+                            kids[i].getFitness(); // Work it out while on this thread
+                        }
+                    }
+                }
+
+                @Override
+                void finished(int _from, int _to) {
+                    if (evaluator != null) {
+                        evaluator.submit(kids, _from, _to);
+                    }
+                }
+            });
+
+            // The parents can only be mutated once all the children are bred.
+            // A parent may have been selected more than once, so this is not
+            // shared between threads.
+            selectedParents.mutate(currentMutationRate, random);
+            if (evaluator != null) {
+                selectedParents.submit(evaluator);
+                evaluator.await();
+            }
+
+            evaluations += kids.length + selectedParents.getSize();
+
+            // Combine the two sets
+            children = new Population(kids);
+            parentsAndChildren = selectedParents.combine(children);
 
-        return generationOfMilestone;
+            // Form the population for the next generation
+            if (sharing == null) {
+                parents = parentsAndChildren.binaryTournamentSelect(parentsPopulationSize, random);
+            } else {
+                parents = parentsAndChildren.binaryTournamentSelect(parentsPopulationSize,
+                        sharing.share(parentsAndChildren), random);
+            }
+        }
+        // Collect data on the final population
+        this.record(generations, parents.getMeanFitness(), parents.getBestIndividual().copy(), this.getTotalEvaluations());
+        diversities[generations] = parents.getDiversity();
+        population = parents;
     }
 
-    // Methods for evolution 
-    // ---------------------
     /**
-     * Performs evolution
+     * Performs evolution with the populations kept off the heap. The steps are
+     * the same as in evolve, but the two populations are made once and reused
+     * for every generation.
+     *
+     * @param _pool The threads to breed with, or null to breed on this thread
      */
-    public void evolve() {
-        Population parents, selectedParents, children, parentsAndChildren;
-        parents = new Population(parentsPopulationSize); // Set up the initial population
-        Phenotype[] kids = new Phenotype[childrenPopulationSize];
+    private void evolveOffHeap(ExecutorService _pool) {
+        int generations = this.getGenerations();
+        if (evaluator != null) {
+            throw new IllegalStateException("Off heap populations cannot use an Evaluator");
+        }
+        if (sharing != null) {
+            throw new IllegalStateException("Off heap populations cannot share fitness");
+        }
+        if (localSearchElites > 0) {
+            throw new IllegalStateException("Off heap populations cannot use local search");
+        }
+
+        Random random = this.makeRandom();
+        final int selectedSize = Math.max(1, (int) (parentsPopulationSize * selectionRate));
+        PackedPopulation parents = this.makePackedPopulation(parentsPopulationSize);
+        final PackedPopulation parentsAndChildren = this.makePackedPopulation(selectedSize + childrenPopulationSize); // Selected parents and children
+        double currentMutationRate = mutationRate;
 
+        parents.randomise(parentsPopulationSize, random); // Set up the initial population
+        parents.evaluate();
+        evaluations += parentsPopulationSize;
+
+        this.setGenerationsCompleted(generations);
         for (int gen = 0; gen < generations; gen++) // The loop of generations
         {
             // Collect data on the population
-            meanFitnesses[gen] = parents.getMeanFitness();
-            bestIndividuals[gen] = parents.getBestIndividual();
+            this.record(gen, parents.getMeanFitness(), parents.getPhenotype(parents.getBestIndex()), evaluations);
+            diversities[gen] = parents.getDiversity(DIVERSITY_SAMPLE, random);
 
-            // Select the best parents
-            selectedParents = parents.binaryTournamentSelect(selectionRate);
+            // Tell anyone watching, and stop if out of time or evaluations
+            this.publish(gen, false);
+            if (this.isOutOfBudget()) {
+                this.setGenerationsCompleted(gen);
+                return;
+            }
 
-            // Apply crossover to make the children
-            for (int i = 0; i < kids.length; i++) {
-                kids[i] = selectedParents.binaryTournamentSelectIndividual()
-                        .mate(selectedParents.binaryTournamentSelectIndividual()); // Select parents and mate 'em
+            // Deal with a population that has converged on one point
+            if (diversities[gen].getMeanHammingDistance() < collapseThreshold) {
+                if (collapseAction == CollapseAction.STOP) {
+                    this.setGenerationsCompleted(gen);
+                    return;
+                } else if (collapseAction == CollapseAction.RAISE_MUTATION) {
+                    currentMutationRate = raise(currentMutationRate);
+                } else if (collapseAction == CollapseAction.RESEED) {
+                    int reseeded = parents.reseed(RESEED_FRACTION, random);
+                    parents.evaluate(0, reseeded);
+                    evaluations += reseeded;
+                }
+            } else {
+                currentMutationRate = mutationRate;
             }
-            children = new Population(kids);
 
-            // Combine the two sets
-            parentsAndChildren = selectedParents.combine(children);
+            // Select the best parents
+            parentsAndChildren.clear();
+            parents.binaryTournamentSelectInto(parentsAndChildren, selectedSize, random);
 
-            // Apply mutation
-            parentsAndChildren.mutate(mutationRate);
+            // Breed the children after them in chunks and mutate the lot.
+            // Packed individuals are copies, so the selected parents can be
+            // mutated in chunks as well.
+            final double poolMutationRate = currentMutationRate;
+            parentsAndChildren.grow(childrenPopulationSize);
+            this.inChunks(childrenPopulationSize, random, _pool, new ChunkTask() {
+                @Override
+                void run(int _from, int _to, Random _random) {
+                    parentsAndChildren.breed(selectedSize, selectedSize + _from, selectedSize + _to, _random);
+                }
+            });
+            this.inChunks(parentsAndChildren.getSize(), random, _pool, new ChunkTask() {
+                @Override
+                void run(int _from, int _to, Random _random) {
+                    parentsAndChildren.mutate(poolMutationRate, _from, _to, _random);
+                    parentsAndChildren.evaluate(_from, _to);
+                }
+            });
+            evaluations += parentsAndChildren.getSize();
 
             // Form the population for the next generation
-            parents = parentsAndChildren.binaryTournamentSelect(parentsPopulationSize);
+            parents.clear();
+            parentsAndChildren.binaryTournamentSelectInto(parents, parentsPopulationSize, random);
         }
         // Collect data on the final population
-        meanFitnesses[generations] = parents.getMeanFitness();
-        bestIndividuals[generations] = parents.getBestIndividual();
+        this.record(generations, parents.getMeanFitness(), parents.getPhenotype(parents.getBestIndex()), evaluations);
+        diversities[generations] = parents.getDiversity(DIVERSITY_SAMPLE, random);
+    }
+
+    /**
+     * Runs a task over a range of indices in chunks. Each chunk is given its
+     * own random numbers, seeded from _random in order, so the results do
+     * not depend on how the chunks are shared between threads.
+     *
+     * @param _length The number of indices
+     * @param _random The source of the seeds
+     * @param _pool The threads to run the chunks on, or null to run them on
+     * this thread
+     * @param _task The task
+     */
+    private void inChunks(int _length, Random _random, ExecutorService _pool, final ChunkTask _task) {
+        int chunks = (_length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        List<Future<?>> futures = new ArrayList<Future<?>>(chunks);
+
+        for (int c = 0; c < chunks; c++) {
+            final int from = c * CHUNK_SIZE;
+            final int to = Math.min(from + CHUNK_SIZE, _length);
+            final Random chunkRandom = new Random(_random.nextLong());
+
+            if (_pool == null) {
+                _task.run(from, to, chunkRandom);
+                _task.finished(from, to);
+            } else {
+                futures.add(_pool.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        _task.run(from, to, chunkRandom);
+                    }
+                }));
+            }
+        }
+
+        // Report the chunks as finished in order, on this thread
+        try {
+            for (int c = 0; c < futures.size(); c++) {
+                futures.get(c).get();
+                _task.finished(c * CHUNK_SIZE, Math.min((c + 1) * CHUNK_SIZE, _length));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while breeding", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Breeding failed", e.getCause());
+        }
+    }
+
+    /**
+     * Some work done on a chunk of a population
+     */
+    private abstract static class ChunkTask {
+
+        /**
+         * Does the work, possibly on another thread
+         *
+         * @param _from The first index of the chunk
+         * @param _to The index after the last
+         * @param _random The chunk's own source of random numbers
+         */
+        abstract void run(int _from, int _to, Random _random);
+
+        /**
+         * Called on the evolving thread once the chunk is done, in order
+         *
+         * @param _from The first index of the chunk
+         * @param _to The index after the last
+         */
+        void finished(int _from, int _to) {
+        }
+    }
+
+    /**
+     * Publishes a snapshot of a generation for other threads to read
+     *
+     * @param _generation The generation
+     * @param _finished Whether evolution has finished
+     */
+    private void publish(int _generation, boolean _finished) {
+        snapshot = new Snapshot(_generation,
+                this.getBestIndividualInGeneration(_generation),
+                this.getMeanFitnessOfGeneration(_generation),
+                this.getTotalEvaluations(),
+                System.currentTimeMillis() - startTime,
+                _finished);
+    }
+
+    /**
+     * A collapse never lowers the mutation rate, and raises a rate of zero
+     *
+     * @param _mutationRate The current mutation rate
+     * @return The mutation rate to use while the population is collapsed
+     */
+    private static double raise(double _mutationRate) {
+        double raised = Math.max(_mutationRate * MUTATION_BOOST, MIN_RAISED_MUTATION_RATE);
+        return Math.max(_mutationRate, Math.min(MAX_MUTATION_RATE, raised));
+    }
+
+    /**
+     * @return Whether evolution has been cancelled or has used up its time or
+     * evaluations
+     */
+    private boolean isOutOfBudget() {
+        return cancelled
+                || (timeBudget > 0 && System.currentTimeMillis() - startTime >= timeBudget)
+                || (evaluationBudget > 0 && this.getTotalEvaluations() >= evaluationBudget);
+    }
+
+    /**
+     * @return The fitness evaluations made so far, including those made by
+     * local search
+     */
+    private long getTotalEvaluations() {
+        return evaluations + localSearchEvaluations;
+    }
+
+    /**
+     * @return The source of random numbers for a run of evolve
+     */
+    private Random makeRandom() {
+        return seeded ? new Random(seed) : new Random();
+    }
+
+    /**
+     * The file is deleted as soon as it is mapped, so nothing is left on disk
+     * however many times evolve is run
+     *
+     * @param _capacity The capacity of the population
+     * @return An empty off heap population, mapped to a file if there is a
+     * storage directory
+     */
+    private PackedPopulation makePackedPopulation(int _capacity) {
+        if (storageDirectory == null) {
+            return new PackedPopulation(_capacity);
+        }
+
+        File file = null;
+        try {
+            file = File.createTempFile("population", ".bin", storageDirectory);
+            return new PackedPopulation(_capacity, file);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not map a population in " + storageDirectory, e);
+        } finally {
+            if (file != null && !file.delete()) {
+                file.deleteOnExit(); // E.g. on Windows, which will not delete a mapped file
+            }
+        }
     }
 }